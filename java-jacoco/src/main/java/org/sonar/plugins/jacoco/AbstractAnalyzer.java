@@ -19,8 +19,12 @@
  */
 package org.sonar.plugins.jacoco;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.apache.commons.lang.StringUtils;
 import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
@@ -39,22 +43,36 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.resources.ResourceUtils;
 import org.sonar.api.scan.filesystem.ModuleFileSystem;
 import org.sonar.api.scan.filesystem.PathResolver;
+import org.sonar.api.test.CoverageBlock;
 import org.sonar.api.test.MutableTestCase;
 import org.sonar.api.test.MutableTestPlan;
 import org.sonar.api.test.MutableTestable;
 import org.sonar.api.test.Testable;
 import org.sonar.api.utils.SonarException;
 import org.sonar.java.JavaClasspath;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 
+import javax.annotation.Nullable;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import static com.google.common.collect.Lists.newArrayList;
 
@@ -66,8 +84,15 @@ public abstract class AbstractAnalyzer {
   private final JavaResourceLocator javaResourceLocator;
   private final boolean readCoveragePerTests;
 
+  private static final byte[] UNREADABLE_CLASS = new byte[0];
+
   private Map<String, File> classFilesCache;
+  /**
+   * Content of class files touched by tests, read once and shared by the analysis of all test sessions.
+   */
+  private ConcurrentMap<String, byte[]> classBytesCache;
   private JavaClasspath javaClasspath;
+  private int threads = 1;
 
   public AbstractAnalyzer(ResourcePerspectives perspectives, ModuleFileSystem fileSystem, PathResolver pathResolver,
                           JavaResourceLocator javaResourceLocator, JavaClasspath javaClasspath) {
@@ -83,6 +108,14 @@ public abstract class AbstractAnalyzer {
     this.javaClasspath = javaClasspath;
   }
 
+  /**
+   * Number of threads analysing coverage of test sessions concurrently.
+   */
+  public void setThreads(int threads) {
+    Preconditions.checkArgument(threads > 0, "At least one thread is required");
+    this.threads = threads;
+  }
+
   private static String fullyQualifiedClassName(String packageName, String simpleClassName) {
     return ("".equals(packageName) ? "" : packageName + "/") + StringUtils.substringBeforeLast(simpleClassName, ".");
   }
@@ -105,8 +138,13 @@ public abstract class AbstractAnalyzer {
 
   public final void analyse(Project project, SensorContext context) {
     classFilesCache = Maps.newHashMap();
+    classBytesCache = Maps.newConcurrentMap();
+    SquidClassLoader classLoader = javaClasspath.getClassLoader();
     for (File classesDir : javaClasspath.getBinaryDirs()) {
-      populateClassFilesCache(classesDir, "");
+      // class files are listed from the index shared with other sensors instead of walking directories again
+      for (String className : classLoader.getClassNames(classesDir)) {
+        classFilesCache.put(className, new File(classesDir, className + ".class"));
+      }
     }
 
     if (classFilesCache.isEmpty()) {
@@ -123,46 +161,39 @@ public abstract class AbstractAnalyzer {
     }
 
     classFilesCache = null;
-  }
-
-  private void populateClassFilesCache(File dir, String path) {
-    File[] files = dir.listFiles();
-    if (files == null) {
-      return;
-    }
-    for (File file : files) {
-      if (file.isDirectory()) {
-        populateClassFilesCache(file, path + file.getName() + "/");
-      } else if (file.getName().endsWith(".class")) {
-        String className = path + StringUtils.removeEnd(file.getName(), ".class");
-        classFilesCache.put(className, file);
-      }
-    }
+    classBytesCache = null;
   }
 
   public final void readExecutionData(File jacocoExecutionData, SensorContext context) throws IOException {
-    ExecutionDataVisitor executionDataVisitor = new ExecutionDataVisitor();
-
-    if (jacocoExecutionData == null || !jacocoExecutionData.isFile()) {
-      JaCoCoExtensions.LOG.info("Project coverage is set to 0% as no JaCoCo execution data has been dumped: {}", jacocoExecutionData);
-      jacocoExecutionData = null;
-    } else {
-      JaCoCoExtensions.LOG.info("Analysing {}", jacocoExecutionData);
+    // sessions are analysed while the file is being read, so that only a few of them are in memory at once
+    CoveragePerTestCollector coveragePerTestCollector = new CoveragePerTestCollector(context);
+    ExecutionDataVisitor executionDataVisitor = new ExecutionDataVisitor(coveragePerTestCollector);
+    boolean collectedCoveragePerTest;
 
-      InputStream inputStream = null;
-      try {
-        inputStream = new BufferedInputStream(new FileInputStream(jacocoExecutionData));
-        ExecutionDataReader reader = new ExecutionDataReader(inputStream);
-        reader.setSessionInfoVisitor(executionDataVisitor);
-        reader.setExecutionDataVisitor(executionDataVisitor);
-        reader.read();
-      } finally {
-        Closeables.closeQuietly(inputStream);
+    try {
+      if (jacocoExecutionData == null || !jacocoExecutionData.isFile()) {
+        JaCoCoExtensions.LOG.info("Project coverage is set to 0% as no JaCoCo execution data has been dumped: {}", jacocoExecutionData);
+        jacocoExecutionData = null;
+      } else {
+        JaCoCoExtensions.LOG.info("Analysing {}", jacocoExecutionData);
+
+        InputStream inputStream = null;
+        try {
+          inputStream = new BufferedInputStream(new FileInputStream(jacocoExecutionData));
+          ExecutionDataReader reader = new ExecutionDataReader(inputStream);
+          reader.setSessionInfoVisitor(executionDataVisitor);
+          reader.setExecutionDataVisitor(executionDataVisitor);
+          reader.read();
+          executionDataVisitor.end();
+        } finally {
+          Closeables.closeQuietly(inputStream);
+        }
       }
+      collectedCoveragePerTest = coveragePerTestCollector.finish();
+    } finally {
+      coveragePerTestCollector.close();
     }
 
-    boolean collectedCoveragePerTest = readCoveragePerTests(context, executionDataVisitor);
-
     CoverageBuilder coverageBuilder = analyze(executionDataVisitor.getMerged());
     int analyzedResources = 0;
     for (ISourceFileCoverage coverage : coverageBuilder.getSourceFiles()) {
@@ -182,39 +213,29 @@ public abstract class AbstractAnalyzer {
     }
   }
 
-  private boolean readCoveragePerTests(SensorContext context, ExecutionDataVisitor executionDataVisitor) {
-    boolean collectedCoveragePerTest = false;
-    if(readCoveragePerTests) {
-      for (Map.Entry<String, ExecutionDataStore> entry : executionDataVisitor.getSessions().entrySet()) {
-        if (analyzeLinesCoveredByTests(entry.getKey(), entry.getValue(), context)) {
-          collectedCoveragePerTest = true;
-        }
-      }
-    }
-    return collectedCoveragePerTest;
-  }
-
-  private boolean analyzeLinesCoveredByTests(String sessionId, ExecutionDataStore executionDataStore, SensorContext context) {
+  @Nullable
+  private TestCoverage testCoverage(String sessionId, SensorContext context) {
     int i = sessionId.indexOf(' ');
     if (i < 0) {
-      return false;
+      return null;
     }
     String testClassName = sessionId.substring(0, i);
-    String testName = sessionId.substring(i + 1);
     Resource testResource = context.getResource(javaResourceLocator.findResourceByClassName(testClassName));
     if (testResource == null) {
       // No such test class
-      return false;
+      return null;
     }
+    return new TestCoverage(sessionId, testResource, sessionId.substring(i + 1));
+  }
 
+  private boolean analyzeLinesCoveredByTests(TestCoverage testCoverage, SensorContext context, boolean mergeWithPreviousCoverage) {
     boolean result = false;
-    CoverageBuilder coverageBuilder = analyze2(executionDataStore);
-    for (ISourceFileCoverage coverage : coverageBuilder.getSourceFiles()) {
+    for (ISourceFileCoverage coverage : testCoverage.getCoverageBuilder().getSourceFiles()) {
       Resource resource = getResource(coverage, context);
       if (resource != null) {
         CoverageMeasuresBuilder builder = analyzeFile(resource, coverage);
         List<Integer> coveredLines = getCoveredLines(builder);
-        if (!coveredLines.isEmpty() && addCoverage(resource, testResource, testName, coveredLines)) {
+        if (!coveredLines.isEmpty() && addCoverage(resource, testCoverage.testResource, testCoverage.testName, coveredLines, mergeWithPreviousCoverage)) {
           result = true;
         }
       }
@@ -222,6 +243,15 @@ public abstract class AbstractAnalyzer {
     return result;
   }
 
+  private Callable<CoverageBuilder> analyze2Task(final ExecutionDataStore executionDataStore) {
+    return new Callable<CoverageBuilder>() {
+      @Override
+      public CoverageBuilder call() {
+        return analyze2(executionDataStore);
+      }
+    };
+  }
+
   private CoverageBuilder analyze2(ExecutionDataStore executionDataStore) {
     CoverageBuilder coverageBuilder = new CoverageBuilder();
     Analyzer analyzer = new Analyzer(executionDataStore, coverageBuilder);
@@ -229,12 +259,29 @@ public abstract class AbstractAnalyzer {
       String vmClassName = data.getName();
       File classFile = classFilesCache.get(vmClassName);
       if (classFile != null) {
-        analyzeClassFile(analyzer, classFile);
+        analyzeClassFile(analyzer, classFile, readClassFile(vmClassName, classFile));
       }
     }
     return coverageBuilder;
   }
 
+  private byte[] readClassFile(String vmClassName, File classFile) {
+    byte[] bytes = classBytesCache.get(vmClassName);
+    if (bytes == null) {
+      try {
+        bytes = Files.toByteArray(classFile);
+      } catch (IOException e) {
+        JaCoCoExtensions.LOG.warn("Exception during analysis of file " + classFile.getAbsolutePath(), e);
+        bytes = UNREADABLE_CLASS;
+      }
+      byte[] previous = classBytesCache.putIfAbsent(vmClassName, bytes);
+      if (previous != null) {
+        bytes = previous;
+      }
+    }
+    return bytes;
+  }
+
   private List<Integer> getCoveredLines(CoverageMeasuresBuilder builder) {
     List<Integer> linesCover = newArrayList();
     for (Map.Entry<Integer, Integer> hitsByLine : builder.getHitsByLine().entrySet()) {
@@ -245,14 +292,18 @@ public abstract class AbstractAnalyzer {
     return linesCover;
   }
 
-  private boolean addCoverage(Resource resource, Resource testFile, String testName, List<Integer> coveredLines) {
+  private boolean addCoverage(Resource resource, Resource testFile, String testName, List<Integer> coveredLines, boolean mergeWithPreviousCoverage) {
     boolean result = false;
     Testable testAbleFile = perspectives.as(MutableTestable.class, resource);
     if (testAbleFile != null) {
       MutableTestPlan testPlan = perspectives.as(MutableTestPlan.class, testFile);
       if (testPlan != null) {
         for (MutableTestCase testCase : testPlan.testCasesByName(testName)) {
-          testCase.setCoverageBlock(testAbleFile, coveredLines);
+          List<Integer> lines = coveredLines;
+          if (mergeWithPreviousCoverage) {
+            lines = mergeCoveredLines(testCase.coverageBlock(testAbleFile), coveredLines);
+          }
+          testCase.setCoverageBlock(testAbleFile, lines);
           result = true;
         }
       }
@@ -260,28 +311,51 @@ public abstract class AbstractAnalyzer {
     return result;
   }
 
+  /**
+   * A coverage block replaces the previous one of the test case, so lines covered by an earlier occurrence of the same
+   * session must be kept.
+   */
+  private static List<Integer> mergeCoveredLines(@Nullable CoverageBlock previousCoverageBlock, List<Integer> coveredLines) {
+    if (previousCoverageBlock == null) {
+      return coveredLines;
+    }
+    SortedSet<Integer> lines = Sets.newTreeSet(previousCoverageBlock.lines());
+    lines.addAll(coveredLines);
+    return newArrayList(lines);
+  }
+
   private CoverageBuilder analyze(ExecutionDataStore executionDataStore) {
     CoverageBuilder coverageBuilder = new CoverageBuilder();
     Analyzer analyzer = new Analyzer(executionDataStore, coverageBuilder);
-    for (File classFile : classFilesCache.values()) {
-      analyzeClassFile(analyzer, classFile);
+    for (Map.Entry<String, File> entry : classFilesCache.entrySet()) {
+      File classFile = entry.getValue();
+      byte[] bytes = classBytesCache.get(entry.getKey());
+      if (bytes == null) {
+        // class not touched by any test session: no need to keep it in memory
+        try {
+          bytes = Files.toByteArray(classFile);
+        } catch (IOException e) {
+          JaCoCoExtensions.LOG.warn("Exception during analysis of file " + classFile.getAbsolutePath(), e);
+          bytes = UNREADABLE_CLASS;
+        }
+      }
+      analyzeClassFile(analyzer, classFile, bytes);
     }
     return coverageBuilder;
   }
 
   /**
-   * Caller must guarantee that {@code classFile} is actually class file.
+   * Caller must guarantee that {@code bytes} are the content of a class file.
    */
-  private void analyzeClassFile(Analyzer analyzer, File classFile) {
-    InputStream inputStream = null;
+  private static void analyzeClassFile(Analyzer analyzer, File classFile, byte[] bytes) {
+    if (bytes == UNREADABLE_CLASS) {
+      return;
+    }
     try {
-      inputStream = new FileInputStream(classFile);
-      analyzer.analyzeClass(inputStream, classFile.getPath());
+      analyzer.analyzeClass(bytes, classFile.getPath());
     } catch (IOException e) {
       // (Godin): in fact JaCoCo includes name into exception
       JaCoCoExtensions.LOG.warn("Exception during analysis of file " + classFile.getAbsolutePath(), e);
-    } finally {
-      Closeables.closeQuietly(inputStream);
     }
   }
 
@@ -316,6 +390,92 @@ public abstract class AbstractAnalyzer {
     return builder;
   }
 
+  /**
+   * Analyses test sessions concurrently, while their results are saved in order on the thread reading execution data.
+   * Occurrences of a session id are analysed separately and their covered lines are merged when saved.
+   */
+  private class CoveragePerTestCollector implements ExecutionDataVisitor.SessionListener {
+    private final SensorContext context;
+    private final ExecutorService executor;
+    private final Queue<TestCoverage> pending = new LinkedList<TestCoverage>();
+    private final Set<String> savedSessionIds = Sets.newHashSet();
+    private boolean collectedCoveragePerTest = false;
+
+    CoveragePerTestCollector(SensorContext context) {
+      this.context = context;
+      this.executor = threads > 1 ? Executors.newFixedThreadPool(threads, new DaemonThreadFactory()) : MoreExecutors.sameThreadExecutor();
+    }
+
+    @Override
+    public void visitSession(String sessionId, ExecutionDataStore executionDataStore) {
+      if (!readCoveragePerTests) {
+        return;
+      }
+      TestCoverage testCoverage = testCoverage(sessionId, context);
+      if (testCoverage != null) {
+        testCoverage.coverageBuilder = executor.submit(analyze2Task(executionDataStore));
+        pending.add(testCoverage);
+        if (pending.size() > threads * 4) {
+          save(pending.poll());
+        }
+      }
+    }
+
+    boolean finish() {
+      while (!pending.isEmpty()) {
+        save(pending.poll());
+      }
+      return collectedCoveragePerTest;
+    }
+
+    void close() {
+      executor.shutdownNow();
+    }
+
+    private void save(TestCoverage testCoverage) {
+      boolean repeatedSession = !savedSessionIds.add(testCoverage.sessionId);
+      if (analyzeLinesCoveredByTests(testCoverage, context, repeatedSession)) {
+        collectedCoveragePerTest = true;
+      }
+    }
+  }
+
+  private static class TestCoverage {
+    private final String sessionId;
+    private final Resource testResource;
+    private final String testName;
+    private Future<CoverageBuilder> coverageBuilder;
+
+    TestCoverage(String sessionId, Resource testResource, String testName) {
+      this.sessionId = sessionId;
+      this.testResource = testResource;
+      this.testName = testName;
+    }
+
+    CoverageBuilder getCoverageBuilder() {
+      try {
+        return coverageBuilder.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SonarException(e);
+      } catch (ExecutionException e) {
+        throw new SonarException(e.getCause());
+      }
+    }
+  }
+
+  private static class DaemonThreadFactory implements ThreadFactory {
+    private int count = 0;
+
+    @Override
+    public synchronized Thread newThread(Runnable runnable) {
+      count++;
+      Thread thread = new Thread(runnable, "jacoco-coverage-per-test-" + count);
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
   protected abstract void saveMeasures(SensorContext context, Resource resource, Collection<Measure> measures);
 
   protected abstract String getReportPath(Project project);
@@ -26,17 +26,47 @@ import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.ISessionInfoVisitor;
 import org.jacoco.core.data.SessionInfo;
 
+import javax.annotation.Nullable;
+import java.util.BitSet;
 import java.util.Map;
 
 public class ExecutionDataVisitor implements ISessionInfoVisitor, IExecutionDataVisitor {
 
+  /**
+   * Receives the execution data of each session as soon as it has been read.
+   */
+  public interface SessionListener {
+    void visitSession(String sessionId, ExecutionDataStore executionDataStore);
+  }
+
   private final Map<String, ExecutionDataStore> sessions = Maps.newHashMap();
+  private final Map<Long, MergedExecutionData> merged = Maps.newLinkedHashMap();
+  private final SessionListener sessionListener;
 
+  private String currentSessionId;
   private ExecutionDataStore executionDataStore;
-  private ExecutionDataStore merged = new ExecutionDataStore();
+
+  public ExecutionDataVisitor() {
+    this(null);
+  }
+
+  /**
+   * In streaming mode, sessions are handed to the listener one at a time and are not kept by this visitor: a session id
+   * appearing several times in the file is then reported once per occurrence, and the listener is responsible for
+   * merging them.
+   */
+  public ExecutionDataVisitor(@Nullable SessionListener sessionListener) {
+    this.sessionListener = sessionListener;
+  }
 
   @Override
   public void visitSessionInfo(SessionInfo info) {
+    if (sessionListener != null) {
+      end();
+      currentSessionId = info.getId();
+      executionDataStore = new ExecutionDataStore();
+      return;
+    }
     String sessionId = info.getId();
     executionDataStore = sessions.get(sessionId);
     if (executionDataStore == null) {
@@ -48,7 +78,23 @@ public class ExecutionDataVisitor implements ISessionInfoVisitor, IExecutionData
   @Override
   public void visitClassExecution(ExecutionData data) {
     executionDataStore.put(data);
-    merged.put(defensiveCopy(data));
+    MergedExecutionData mergedData = merged.get(data.getId());
+    if (mergedData == null) {
+      mergedData = new MergedExecutionData(data);
+      merged.put(data.getId(), mergedData);
+    }
+    mergedData.merge(data);
+  }
+
+  /**
+   * Hands the last session read to the listener, to be called once the whole file has been read in streaming mode.
+   */
+  public void end() {
+    if (sessionListener != null && executionDataStore != null) {
+      ExecutionDataStore store = executionDataStore;
+      executionDataStore = null;
+      sessionListener.visitSession(currentSessionId, store);
+    }
   }
 
   public Map<String, ExecutionDataStore> getSessions() {
@@ -56,14 +102,47 @@ public class ExecutionDataVisitor implements ISessionInfoVisitor, IExecutionData
   }
 
   public ExecutionDataStore getMerged() {
-    return merged;
+    ExecutionDataStore store = new ExecutionDataStore();
+    for (MergedExecutionData mergedData : merged.values()) {
+      store.put(mergedData.toExecutionData());
+    }
+    return store;
   }
 
-  private static ExecutionData defensiveCopy(ExecutionData data) {
-    boolean[] src = data.getProbes();
-    boolean[] dest = new boolean[src.length];
-    System.arraycopy(src, 0, dest, 0, src.length);
-    return new ExecutionData(data.getId(), data.getName(), dest);
+  /**
+   * Probes of a class hit by any session, kept as a bitset rather than a copy of each probe array.
+   */
+  private static class MergedExecutionData {
+    private final long id;
+    private final String name;
+    private final int probeCount;
+    private final BitSet probes;
+
+    MergedExecutionData(ExecutionData data) {
+      this.id = data.getId();
+      this.name = data.getName();
+      this.probeCount = data.getProbes().length;
+      this.probes = new BitSet(probeCount);
+    }
+
+    void merge(ExecutionData data) {
+      // same checks as JaCoCo when merging execution data of a class
+      data.assertCompatibility(id, name, probeCount);
+      boolean[] dataProbes = data.getProbes();
+      for (int i = 0; i < dataProbes.length; i++) {
+        if (dataProbes[i]) {
+          probes.set(i);
+        }
+      }
+    }
+
+    ExecutionData toExecutionData() {
+      boolean[] result = new boolean[probeCount];
+      for (int i = probes.nextSetBit(0); i >= 0; i = probes.nextSetBit(i + 1)) {
+        result[i] = true;
+      }
+      return new ExecutionData(id, name, result);
+    }
   }
 
 }
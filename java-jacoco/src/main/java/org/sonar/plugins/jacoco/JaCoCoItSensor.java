@@ -65,7 +65,9 @@ public class JaCoCoItSensor implements Sensor {
 
   @Override
   public void analyse(Project project, SensorContext context) {
-    new ITAnalyzer(perspectives).analyse(project, context);
+    ITAnalyzer analyzer = new ITAnalyzer(perspectives);
+    analyzer.setThreads(Math.max(1, configuration.getThreads()));
+    analyzer.analyse(project, context);
   }
 
   class ITAnalyzer extends AbstractAnalyzer {
@@ -63,7 +63,9 @@ public class JaCoCoSensor implements Sensor {
 
   @Override
   public void analyse(Project project, SensorContext context) {
-    new UnitTestsAnalyzer(perspectives).analyse(project, context);
+    UnitTestsAnalyzer analyzer = new UnitTestsAnalyzer(perspectives);
+    analyzer.setThreads(Math.max(1, configuration.getThreads()));
+    analyzer.analyse(project, context);
   }
 
   @Override
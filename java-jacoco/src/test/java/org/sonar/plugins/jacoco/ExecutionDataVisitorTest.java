@@ -19,10 +19,14 @@
  */
 package org.sonar.plugins.jacoco;
 
+import com.google.common.collect.Lists;
 import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.SessionInfo;
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.fest.assertions.Assertions.assertThat;
 
 public class ExecutionDataVisitorTest {
@@ -48,4 +52,41 @@ public class ExecutionDataVisitorTest {
     assertThat(visitor.getMerged().get(1).getProbes()).isEqualTo(new boolean[] {true, true, true});
   }
 
+  @Test
+  public void should_hand_sessions_one_at_a_time_in_streaming_mode() {
+    final List<String> sessionIds = Lists.newArrayList();
+    final List<ExecutionDataStore> stores = Lists.newArrayList();
+    ExecutionDataVisitor visitor = new ExecutionDataVisitor(new ExecutionDataVisitor.SessionListener() {
+      @Override
+      public void visitSession(String sessionId, ExecutionDataStore executionDataStore) {
+        sessionIds.add(sessionId);
+        stores.add(executionDataStore);
+      }
+    });
+
+    visitor.visitSessionInfo(new SessionInfo("foo", 1L, 1L));
+    visitor.visitClassExecution(new ExecutionData(1, "", new boolean[] {true, false, false}));
+    assertThat(sessionIds).isEmpty();
+
+    visitor.visitSessionInfo(new SessionInfo("bar", 2L, 2L));
+    visitor.visitClassExecution(new ExecutionData(1, "", new boolean[] {false, true, false}));
+    assertThat(sessionIds).containsExactly("foo");
+
+    visitor.end();
+    assertThat(sessionIds).containsExactly("foo", "bar");
+    assertThat(stores.get(0).get(1).getProbes()).isEqualTo(new boolean[] {true, false, false});
+    assertThat(stores.get(1).get(1).getProbes()).isEqualTo(new boolean[] {false, true, false});
+    assertThat(visitor.getSessions()).isEmpty();
+    assertThat(visitor.getMerged().get(1).getProbes()).isEqualTo(new boolean[] {true, true, false});
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void should_fail_on_incompatible_execution_data() {
+    ExecutionDataVisitor visitor = new ExecutionDataVisitor();
+    visitor.visitSessionInfo(new SessionInfo("foo", 1L, 1L));
+    visitor.visitClassExecution(new ExecutionData(1, "", new boolean[] {true, false, false}));
+    visitor.visitSessionInfo(new SessionInfo("bar", 2L, 2L));
+    visitor.visitClassExecution(new ExecutionData(1, "", new boolean[] {true}));
+  }
+
 }
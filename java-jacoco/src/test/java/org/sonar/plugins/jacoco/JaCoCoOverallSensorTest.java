@@ -32,6 +32,7 @@ import org.sonar.api.scan.filesystem.ModuleFileSystem;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.api.test.IsMeasure;
 import org.sonar.java.JavaClasspath;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.test.TestUtils;
 
@@ -167,6 +168,7 @@ public class JaCoCoOverallSensorTest {
     when(configuration.getReportPath()).thenReturn(utReport);
     when(configuration.getItReportPath()).thenReturn(itReport);
     when(javaClasspath.getBinaryDirs()).thenReturn(ImmutableList.of(outputDir));
+    when(javaClasspath.getClassLoader()).thenReturn(ClassLoaderBuilder.create(outputDir));
     when(pathResolver.relativeFile(any(File.class), eq(utReport))).thenReturn(new File(outputDir, utReport));
     when(pathResolver.relativeFile(any(File.class), eq(itReport))).thenReturn(new File(outputDir, itReport));
     when(pathResolver.relativeFile(any(File.class), eq(new File("target/sonar/jacoco-overall.exec").getAbsolutePath()))).thenReturn(new File("target/sonar/jacoco-overall.exec"));
@@ -21,8 +21,16 @@ package org.sonar.plugins.jacoco;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.component.ResourcePerspectives;
 import org.sonar.api.measures.CoreMetrics;
@@ -31,20 +39,28 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.scan.filesystem.ModuleFileSystem;
 import org.sonar.api.scan.filesystem.PathResolver;
+import org.sonar.api.test.CoverageBlock;
 import org.sonar.api.test.IsMeasure;
 import org.sonar.api.test.MutableTestCase;
 import org.sonar.api.test.MutableTestPlan;
 import org.sonar.api.test.MutableTestable;
+import org.sonar.api.test.Testable;
 import org.sonar.java.JavaClasspath;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.test.TestUtils;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -56,6 +72,9 @@ import static org.mockito.Mockito.when;
 
 public class JaCoCoSensorTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private File jacocoExecutionData;
   private File outputDir;
   private JacocoConfiguration configuration;
@@ -115,6 +134,7 @@ public class JaCoCoSensorTest {
     when(context.getResource(any(Resource.class))).thenReturn(resource);
 
     when(javaClasspath.getBinaryDirs()).thenReturn(ImmutableList.of(outputDir));
+    when(javaClasspath.getClassLoader()).thenReturn(ClassLoaderBuilder.create(outputDir));
     when(pathResolver.relativeFile(any(File.class), any(String.class))).thenReturn(jacocoExecutionData);
 
     sensor.analyse(project, context);
@@ -132,6 +152,16 @@ public class JaCoCoSensorTest {
 
   @Test
   public void test_read_execution_data_for_lines_covered_by_tests() throws IOException {
+    verifyLinesCoveredByTests();
+  }
+
+  @Test
+  public void test_read_execution_data_for_lines_covered_by_tests_with_several_threads() throws IOException {
+    when(configuration.getThreads()).thenReturn(2);
+    verifyLinesCoveredByTests();
+  }
+
+  private void verifyLinesCoveredByTests() throws IOException {
     outputDir = TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCoSensorTest2/");
     jacocoExecutionData = new File(outputDir, "jacoco.exec");
     Files.copy(TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCoSensorTest2/org/example/App.class.toCopy"),
@@ -140,6 +170,7 @@ public class JaCoCoSensorTest {
     org.sonar.api.resources.File resource = mock(org.sonar.api.resources.File.class);
     when(context.getResource(any(Resource.class))).thenReturn(resource);
     when(javaClasspath.getBinaryDirs()).thenReturn(ImmutableList.of(outputDir));
+    when(javaClasspath.getClassLoader()).thenReturn(ClassLoaderBuilder.create(outputDir));
     when(pathResolver.relativeFile(any(File.class), any(String.class))).thenReturn(jacocoExecutionData);
 
     MutableTestable testAbleFile = mock(MutableTestable.class);
@@ -157,10 +188,84 @@ public class JaCoCoSensorTest {
     verify(testCase).setCoverageBlock(testAbleFile, newArrayList(3, 6));
   }
 
+  @Test
+  public void should_merge_lines_covered_by_repeated_session() throws IOException {
+    File appClassesDir = TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCoSensorTest2/");
+    ExecutionDataVisitor executionDataVisitor = new ExecutionDataVisitor();
+    ExecutionDataReader reader = new ExecutionDataReader(new FileInputStream(new File(appClassesDir, "jacoco.exec")));
+    reader.setSessionInfoVisitor(executionDataVisitor);
+    reader.setExecutionDataVisitor(executionDataVisitor);
+    reader.read();
+    long appClassId = executionDataVisitor.getMerged().getContents().iterator().next().getId();
+
+    outputDir = temp.newFolder();
+    File appClassFile = new File(outputDir, "org/example/App.class");
+    Files.createParentDirs(appClassFile);
+    Files.copy(new File(appClassesDir, "org/example/App.class.toCopy"), appClassFile);
+    jacocoExecutionData = new File(outputDir, "jacoco.exec");
+    OutputStream outputStream = new FileOutputStream(jacocoExecutionData);
+    try {
+      ExecutionDataWriter writer = new ExecutionDataWriter(outputStream);
+      // the first session is dumped twice, with another session in between
+      writer.visitSessionInfo(new SessionInfo("org.example.FirstTest test", 0, 0));
+      writer.visitClassExecution(new ExecutionData(appClassId, "org/example/App", new boolean[] {true, false, false}));
+      writer.visitSessionInfo(new SessionInfo("org.example.SecondTest test", 0, 0));
+      writer.visitClassExecution(new ExecutionData(appClassId, "org/example/App", new boolean[] {true, false, true}));
+      writer.visitSessionInfo(new SessionInfo("org.example.FirstTest test", 0, 0));
+      writer.visitClassExecution(new ExecutionData(appClassId, "org/example/App", new boolean[] {false, true, false}));
+    } finally {
+      outputStream.close();
+    }
+
+    org.sonar.api.resources.File resource = mock(org.sonar.api.resources.File.class);
+    when(context.getResource(any(Resource.class))).thenReturn(resource);
+    when(javaClasspath.getBinaryDirs()).thenReturn(ImmutableList.of(outputDir));
+    when(javaClasspath.getClassLoader()).thenReturn(ClassLoaderBuilder.create(outputDir));
+    when(pathResolver.relativeFile(any(File.class), any(String.class))).thenReturn(jacocoExecutionData);
+
+    MutableTestable testAbleFile = mock(MutableTestable.class);
+    when(perspectives.as(eq(MutableTestable.class), any(org.sonar.api.resources.File.class))).thenReturn(testAbleFile);
+    org.sonar.api.resources.File firstTestFile = mock(org.sonar.api.resources.File.class);
+    org.sonar.api.resources.File secondTestFile = mock(org.sonar.api.resources.File.class);
+    when(javaResourceLocator.findResourceByClassName("org.example.FirstTest")).thenReturn(firstTestFile);
+    when(javaResourceLocator.findResourceByClassName("org.example.SecondTest")).thenReturn(secondTestFile);
+    when(context.getResource(firstTestFile)).thenReturn(firstTestFile);
+    when(context.getResource(secondTestFile)).thenReturn(secondTestFile);
+    MutableTestCase firstTestCase = testCase(firstTestFile, testAbleFile);
+    MutableTestCase secondTestCase = testCase(secondTestFile, testAbleFile);
+
+    sensor.analyse(project, context);
+
+    assertThat(firstTestCase.coverageBlock(testAbleFile).lines()).containsExactly(3, 6);
+    assertThat(secondTestCase.coverageBlock(testAbleFile).lines()).containsExactly(3, 10);
+  }
+
+  /**
+   * Test case keeping the last coverage block set, as the one of the platform does.
+   */
+  private MutableTestCase testCase(Resource testFile, Testable testAbleFile) {
+    final MutableTestCase testCase = mock(MutableTestCase.class);
+    final CoverageBlock coverageBlock = mock(CoverageBlock.class);
+    when(testCase.setCoverageBlock(eq(testAbleFile), anyListOf(Integer.class))).thenAnswer(new Answer<MutableTestCase>() {
+      @Override
+      public MutableTestCase answer(InvocationOnMock invocation) {
+        List<Integer> lines = (List<Integer>) invocation.getArguments()[1];
+        when(coverageBlock.lines()).thenReturn(lines);
+        when(testCase.coverageBlock(any(Testable.class))).thenReturn(coverageBlock);
+        return testCase;
+      }
+    });
+    MutableTestPlan testPlan = mock(MutableTestPlan.class);
+    when(testPlan.testCasesByName("test")).thenReturn(newArrayList(testCase));
+    when(perspectives.as(MutableTestPlan.class, testFile)).thenReturn(testPlan);
+    return testCase;
+  }
+
   @Test
   public void do_not_save_measure_on_resource_which_doesnt_exist_in_the_context() {
     when(context.getResource(any(Resource.class))).thenReturn(null);
     when(javaClasspath.getBinaryDirs()).thenReturn(ImmutableList.of(outputDir));
+    when(javaClasspath.getClassLoader()).thenReturn(ClassLoaderBuilder.create(outputDir));
 
     sensor.analyse(project, context);
 
@@ -170,6 +275,7 @@ public class JaCoCoSensorTest {
   @Test
   public void should_do_nothing_if_output_dir_does_not_exists() {
     when(javaClasspath.getBinaryDirs()).thenReturn(ImmutableList.of(new File("nowhere")));
+    when(javaClasspath.getClassLoader()).thenReturn(ClassLoaderBuilder.create(new File("nowhere")));
 
     sensor.analyse(project, context);
 
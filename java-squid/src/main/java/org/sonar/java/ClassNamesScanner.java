@@ -0,0 +1,227 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import com.google.common.collect.Lists;
+
+import javax.annotation.CheckForNull;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Finds names of classes declared in a file by scanning its tokens, without parsing it.
+ * Keys of classes follow conventions of {@link JavaFilesCache}.
+ * Scanner gives up, so that file has to be parsed, when it finds local or anonymous classes,
+ * whose keys depend on their position within methods, or constructions which it does not handle.
+ */
+class ClassNamesScanner {
+
+  private final String content;
+  private int index = 0;
+
+  private final List<String> classKeys = Lists.newArrayList();
+  private final Deque<Scope> scopes = new LinkedList<Scope>();
+  private final Deque<Boolean> parenthesesAfterNew = new LinkedList<Boolean>();
+  private StringBuilder packageName = null;
+  private String currentPackage = "";
+  private String previousToken = "";
+  private boolean expectClassName = false;
+  private boolean expectEnum = false;
+  private Scope pendingClass = null;
+  private boolean afterNew = false;
+  private boolean lastParenthesisAfterNew = false;
+
+  private ClassNamesScanner(String content) {
+    this.content = content;
+  }
+
+  /**
+   * @return keys of classes declared in given source code, or null if source code has to be parsed to find them
+   */
+  @CheckForNull
+  static List<String> scan(String content) {
+    if (content.contains("\\u") || content.contains("SuppressWarnings")) {
+      // unicode escapes are not handled, and suppressed warnings are extracted by JavaFilesCache
+      return null;
+    }
+    ClassNamesScanner scanner = new ClassNamesScanner(content);
+    return scanner.scan() ? scanner.classKeys : null;
+  }
+
+  private boolean scan() {
+    String token = nextToken();
+    while (token != null) {
+      if (!handle(token)) {
+        return false;
+      }
+      previousToken = token;
+      token = nextToken();
+    }
+    return scopes.isEmpty() && parenthesesAfterNew.isEmpty() && packageName == null && !expectClassName && pendingClass == null;
+  }
+
+  private boolean handle(String token) {
+    if (packageName != null) {
+      if (";".equals(token)) {
+        currentPackage = packageName.toString().replace('.', '/');
+        packageName = null;
+      } else {
+        packageName.append(token);
+      }
+    } else if (expectClassName) {
+      return handleClassName(token);
+    } else if ("package".equals(token) && scopes.isEmpty()) {
+      packageName = new StringBuilder();
+    } else if (isClassKeyword(token) && !".".equals(previousToken)) {
+      Scope scope = scopes.peek();
+      if (scope != null && scope.classKey == null) {
+        // local class
+        return false;
+      }
+      expectClassName = true;
+      expectEnum = "enum".equals(token);
+    } else if ("{".equals(token)) {
+      return openBrace();
+    } else if ("}".equals(token)) {
+      return scopes.poll() != null;
+    } else if (";".equals(token)) {
+      Scope scope = scopes.peek();
+      if (scope != null) {
+        scope.enumConstantsDeclared = true;
+      }
+      afterNew = false;
+    } else if ("new".equals(token)) {
+      afterNew = !":".equals(previousToken);
+    } else if ("(".equals(token)) {
+      parenthesesAfterNew.push(afterNew);
+      afterNew = false;
+    } else if (")".equals(token)) {
+      if (parenthesesAfterNew.isEmpty()) {
+        return false;
+      }
+      lastParenthesisAfterNew = parenthesesAfterNew.pop();
+    } else if ("[".equals(token) || "=".equals(token)) {
+      afterNew = false;
+    }
+    return true;
+  }
+
+  private static boolean isClassKeyword(String token) {
+    return "class".equals(token) || "interface".equals(token) || "enum".equals(token);
+  }
+
+  private boolean handleClassName(String name) {
+    if (!Character.isJavaIdentifierStart(name.charAt(0))) {
+      return false;
+    }
+    expectClassName = false;
+    String key;
+    Scope scope = scopes.peek();
+    if (scope != null) {
+      key = scope.classKey + "$" + name;
+    } else if (currentPackage.isEmpty()) {
+      key = name;
+    } else {
+      key = currentPackage + "/" + name;
+    }
+    classKeys.add(key);
+    pendingClass = new Scope(key, expectEnum);
+    return true;
+  }
+
+  private boolean openBrace() {
+    afterNew = false;
+    if (pendingClass != null) {
+      scopes.push(pendingClass);
+      pendingClass = null;
+      return true;
+    }
+    if (")".equals(previousToken) && lastParenthesisAfterNew) {
+      // anonymous class
+      return false;
+    }
+    Scope scope = scopes.peek();
+    if (scope != null && scope.isEnum && !scope.enumConstantsDeclared) {
+      // body of enum constant
+      return false;
+    }
+    scopes.push(new Scope(null, false));
+    return true;
+  }
+
+  @CheckForNull
+  private String nextToken() {
+    skipWhitespacesAndComments();
+    if (index >= content.length()) {
+      return null;
+    }
+    int start = index;
+    char c = content.charAt(index);
+    if (Character.isJavaIdentifierPart(c)) {
+      // identifiers, keywords and numbers
+      while (index < content.length() && (Character.isJavaIdentifierPart(content.charAt(index)) || (Character.isDigit(c) && content.charAt(index) == '.'))) {
+        index++;
+      }
+    } else if (c == '"' || c == '\'') {
+      index++;
+      while (index < content.length() && content.charAt(index) != c) {
+        index += content.charAt(index) == '\\' ? 2 : 1;
+      }
+      index++;
+    } else {
+      index++;
+    }
+    return content.substring(start, Math.min(index, content.length()));
+  }
+
+  private void skipWhitespacesAndComments() {
+    while (index < content.length()) {
+      char c = content.charAt(index);
+      if (Character.isWhitespace(c)) {
+        index++;
+      } else if (content.startsWith("//", index)) {
+        while (index < content.length() && content.charAt(index) != '\n' && content.charAt(index) != '\r') {
+          index++;
+        }
+      } else if (content.startsWith("/*", index)) {
+        int end = content.indexOf("*/", index + 2);
+        index = end < 0 ? content.length() : (end + 2);
+      } else {
+        return;
+      }
+    }
+  }
+
+  private static class Scope {
+    /**
+     * Key of class whose body is this scope, null for blocks of code and array initializers.
+     */
+    private final String classKey;
+    private final boolean isEnum;
+    private boolean enumConstantsDeclared = false;
+
+    Scope(String classKey, boolean isEnum) {
+      this.classKey = classKey;
+      this.isEnum = isEnum;
+    }
+  }
+
+}
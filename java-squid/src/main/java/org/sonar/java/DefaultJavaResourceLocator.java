@@ -35,6 +35,7 @@ import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Collection;
 import java.util.Map;
@@ -124,21 +125,34 @@ public class DefaultJavaResourceLocator implements JavaResourceLocator, JavaFile
     Preconditions.checkNotNull(sensorContext);
     JavaFilesCache javaFilesCache = new JavaFilesCache();
     javaFilesCache.scanFile(context);
-    org.sonar.api.resources.File currentResource = org.sonar.api.resources.File.fromIOFile(context.getFile(), project);
+    org.sonar.api.resources.File currentResource = addResource(context.getFile(), context.getFileKey(), javaFilesCache.getResourcesCache().keySet());
+    methodStartLines.putAll(javaFilesCache.getMethodStartLines());
+    org.sonar.api.resources.File indexedResource = sensorContext.getResource(currentResource);
+    if (indexedResource != null && javaFilesCache.hasSuppressWarnings()) {
+      suppressWarningsFilter.addComponent(indexedResource.getEffectiveKey(), javaFilesCache.getSuppressWarnings());
+    }
+  }
+
+  /**
+   * Adds mapping of classes of a test file, whose keys were found without parsing it.
+   */
+  void addTestFile(File file, Collection<String> classKeys) {
+    Preconditions.checkNotNull(sensorContext);
+    addResource(file, null, classKeys);
+  }
+
+  private org.sonar.api.resources.File addResource(File file, @Nullable String fileKey, Collection<String> classKeys) {
+    org.sonar.api.resources.File currentResource = org.sonar.api.resources.File.fromIOFile(file, project);
     if (currentResource == null) {
-      throw new IllegalStateException("resource not found : " + context.getFileKey());
+      throw new IllegalStateException("resource not found : " + fileKey);
     }
-    resourceMapping.addResource(currentResource, context.getFileKey());
-    for (Map.Entry<String, File> classIOFileEntry : javaFilesCache.getResourcesCache().entrySet()) {
-      resourcesByClass.put(classIOFileEntry.getKey(), currentResource);
-      if (context.getFileKey() != null) {
-        sourceFileByClass.put(classIOFileEntry.getKey(), context.getFileKey());
+    resourceMapping.addResource(currentResource, fileKey);
+    for (String classKey : classKeys) {
+      resourcesByClass.put(classKey, currentResource);
+      if (fileKey != null) {
+        sourceFileByClass.put(classKey, fileKey);
       }
     }
-    methodStartLines.putAll(javaFilesCache.getMethodStartLines());
-    org.sonar.api.resources.File indexedResource = sensorContext.getResource(currentResource);
-    if (indexedResource != null && javaFilesCache.hasSuppressWarningLines()) {
-      suppressWarningsFilter.addComponent(indexedResource.getEffectiveKey(), javaFilesCache.getSuppressWarningLines());
-    }
+    return currentResource;
   }
 }
@@ -0,0 +1,282 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cumulative execution times of phases of the analysis and of visitors, along with the slowest files, saved as JSON once analysis is done.
+ * Measuring has a cost of its own, so this report is only collected on demand, to find out what slows down analysis of a project.
+ * Times are measured on the thread which executes the analysis, thus a report must not be shared between threads.
+ * <p/>
+ * CPU time of the thread is only measured for phases and files: visitors are called for each node, and reading CPU time
+ * usually costs more than such a call, so that their CPU time would mostly measure the number of their calls.
+ */
+public class ExecutionTimeReport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExecutionTimeReport.class);
+
+  public static final String PHASE = "phases";
+  /**
+   * Time of a {@link org.sonar.squidbridge.SquidAstVisitor} includes the one of the {@link #JAVA_FILE_SCANNER} it executes, if any.
+   */
+  public static final String AST_VISITOR = "astVisitors";
+  public static final String JAVA_FILE_SCANNER = "javaFileScanners";
+  public static final String BYTECODE_VISITOR = "bytecodeVisitors";
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final boolean CPU_TIME_SUPPORTED = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported();
+
+  private final File file;
+  private final int slowestFilesCount;
+  private final Map<String, Map<String, Timer>> timersByCategory = Maps.newLinkedHashMap();
+  private final PriorityQueue<FileTime> slowestFiles;
+  @Nullable
+  private File currentFile;
+  private long fileWallStart;
+  private long fileCpuStart;
+
+  /**
+   * @param file where report is saved
+   * @param slowestFilesCount number of slowest files to report
+   */
+  public ExecutionTimeReport(File file, int slowestFilesCount) {
+    this.file = file;
+    this.slowestFilesCount = slowestFilesCount;
+    this.slowestFiles = new PriorityQueue<FileTime>(slowestFilesCount + 1, FileTime.BY_TIME);
+  }
+
+  /**
+   * @return timer accumulating times of given category and name, shared by all the callers of this method with the same arguments,
+   * which measures CPU time only for {@link #PHASE}
+   */
+  public Timer timer(String category, String name) {
+    Map<String, Timer> timers = timersByCategory.get(category);
+    if (timers == null) {
+      timers = Maps.newLinkedHashMap();
+      timersByCategory.put(category, timers);
+    }
+    Timer timer = timers.get(name);
+    if (timer == null) {
+      timer = new Timer(name, PHASE.equals(category));
+      timers.put(name, timer);
+    }
+    return timer;
+  }
+
+  /**
+   * Timer of a visitor, named after its class.
+   */
+  public Timer timer(String category, Object visitor) {
+    return timer(category, visitor.getClass().getName());
+  }
+
+  public void startFile(File file) {
+    currentFile = file;
+    fileWallStart = System.nanoTime();
+    fileCpuStart = currentThreadCpuTime();
+  }
+
+  /**
+   * Records time spent since {@link #startFile(File)}.
+   */
+  public void stopFile() {
+    fileAnalyzed(currentFile, System.nanoTime() - fileWallStart, currentThreadCpuTime() - fileCpuStart);
+    currentFile = null;
+  }
+
+  @VisibleForTesting
+  void fileAnalyzed(File file, long wallTime, long cpuTime) {
+    slowestFiles.add(new FileTime(file, wallTime, cpuTime));
+    if (slowestFiles.size() > slowestFilesCount) {
+      slowestFiles.poll();
+    }
+  }
+
+  public void save() {
+    try {
+      file.getParentFile().mkdirs();
+      Files.write(toJson(), file, Charsets.UTF_8);
+      LOG.info("Execution time report saved to " + file.getAbsolutePath());
+    } catch (IOException e) {
+      LOG.warn("Unable to save execution time report to " + file.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * Timers of each category are sorted from the slowest one, as well as files.
+   */
+  @VisibleForTesting
+  String toJson() {
+    StringBuilder json = new StringBuilder();
+    json.append('{');
+    for (Map.Entry<String, Map<String, Timer>> entry : timersByCategory.entrySet()) {
+      List<Timer> timers = Lists.newArrayList(entry.getValue().values());
+      Collections.sort(timers, Timer.SLOWEST_FIRST);
+      appendString(json, entry.getKey()).append(":[");
+      for (int i = 0; i < timers.size(); i++) {
+        if (i > 0) {
+          json.append(',');
+        }
+        timers.get(i).appendJson(json);
+      }
+      json.append("],");
+    }
+    List<FileTime> files = Lists.newArrayList(slowestFiles);
+    Collections.sort(files, Collections.reverseOrder(FileTime.BY_TIME));
+    json.append("\"slowestFiles\":[");
+    for (int i = 0; i < files.size(); i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      FileTime fileTime = files.get(i);
+      json.append("{\"file\":");
+      appendString(json, fileTime.file.getPath());
+      appendTimes(json, fileTime.wallTime, fileTime.cpuTime, true);
+      json.append('}');
+    }
+    json.append("]}");
+    return json.toString();
+  }
+
+  private static StringBuilder appendString(StringBuilder json, String value) {
+    return json.append('"').append(StringEscapeUtils.escapeJava(value)).append('"');
+  }
+
+  private static void appendTimes(StringBuilder json, long wallTime, long cpuTime, boolean measuresCpuTime) {
+    json.append(",\"wallMs\":").append(toMillis(wallTime));
+    if (measuresCpuTime && CPU_TIME_SUPPORTED) {
+      json.append(",\"cpuMs\":").append(toMillis(cpuTime));
+    }
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static long currentThreadCpuTime() {
+    return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+  }
+
+  /**
+   * Accumulates wall time, and CPU time for phases, between calls to {@link #start()} and {@link #stop()}.
+   * Nested calls, for instance when a visitor calls itself through another one, are measured only once.
+   */
+  public static class Timer {
+
+    private static final Comparator<Timer> SLOWEST_FIRST = new Comparator<Timer>() {
+      @Override
+      public int compare(Timer t1, Timer t2) {
+        return t1.wallTime == t2.wallTime ? t1.name.compareTo(t2.name) : (t1.wallTime > t2.wallTime ? -1 : 1);
+      }
+    };
+
+    private final String name;
+    private final boolean measuresCpuTime;
+    private int depth;
+    private long invocations;
+    private long wallTime;
+    private long cpuTime;
+    private long wallStart;
+    private long cpuStart;
+
+    private Timer(String name, boolean measuresCpuTime) {
+      this.name = name;
+      this.measuresCpuTime = measuresCpuTime;
+    }
+
+    public void start() {
+      if (depth == 0) {
+        invocations++;
+        wallStart = System.nanoTime();
+        if (measuresCpuTime) {
+          cpuStart = currentThreadCpuTime();
+        }
+      }
+      depth++;
+    }
+
+    public void stop() {
+      depth--;
+      if (depth == 0) {
+        wallTime += System.nanoTime() - wallStart;
+        if (measuresCpuTime) {
+          cpuTime += currentThreadCpuTime() - cpuStart;
+        }
+      }
+    }
+
+    public long getInvocations() {
+      return invocations;
+    }
+
+    public long getWallTime() {
+      return wallTime;
+    }
+
+    private void appendJson(StringBuilder json) {
+      json.append("{\"name\":");
+      appendString(json, name);
+      json.append(",\"invocations\":").append(invocations);
+      appendTimes(json, wallTime, cpuTime, measuresCpuTime);
+      json.append('}');
+    }
+  }
+
+  private static class FileTime {
+
+    private static final Comparator<FileTime> BY_TIME = new Comparator<FileTime>() {
+      @Override
+      public int compare(FileTime f1, FileTime f2) {
+        return f1.wallTime < f2.wallTime ? -1 : (f1.wallTime == f2.wallTime ? 0 : 1);
+      }
+    };
+
+    private final File file;
+    private final long wallTime;
+    private final long cpuTime;
+
+    FileTime(File file, long wallTime, long cpuTime) {
+      this.file = file;
+      this.wallTime = wallTime;
+      this.cpuTime = cpuTime;
+    }
+  }
+
+}
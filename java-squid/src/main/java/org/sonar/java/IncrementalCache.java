@@ -0,0 +1,509 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.check.Rule;
+import org.sonar.squidbridge.api.CheckMessage;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Results of checks on each file, kept on disk between analyses, so that neither semantic analysis nor checks are executed again
+ * on a file whose content did not change.
+ * Cached results are valid only for a given fingerprint of the analysis (active rules and their parameters, libraries, etc.) :
+ * cache is discarded as a whole when this fingerprint changes.
+ * Only results of checks are cached: files are still parsed and measured, and other visitors are still executed on them.
+ */
+public class IncrementalCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IncrementalCache.class);
+
+  private static final int VERSION = 1;
+
+  private final File file;
+  private final String fingerprint;
+  private final Set<Class<?>> alwaysExecutedChecks;
+  private final Map<String, FileResults> previousResults;
+  private final Map<String, FileResults> currentResults = Maps.newHashMap();
+
+  /**
+   * @param file where cache is stored
+   * @param fingerprint fingerprint of analysis
+   * @param alwaysExecutedChecks checks which must see every file of the project, for instance because they report issues on directories
+   */
+  public IncrementalCache(File file, String fingerprint, Collection<Class<?>> alwaysExecutedChecks) {
+    this.file = file;
+    this.fingerprint = fingerprint;
+    this.alwaysExecutedChecks = ImmutableSet.copyOf(alwaysExecutedChecks);
+    this.previousResults = load(file, fingerprint);
+  }
+
+  public static String hash(String content) {
+    return DigestUtils.sha1Hex(content.getBytes(Charsets.UTF_8));
+  }
+
+  /**
+   * Version of the analyzer is not reliably given by manifests, so it is identified by the content of the jar file from which
+   * given class was loaded, or by sizes and modification dates of the files of the directory it was loaded from.
+   *
+   * @return hash of the code source of given class
+   */
+  public static String hashCodeSource(Class<?> clazz) {
+    CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+    return hashLocation(codeSource == null ? null : FileUtils.toFile(codeSource.getLocation()));
+  }
+
+  @VisibleForTesting
+  static String hashLocation(@Nullable File location) {
+    if (location == null) {
+      return "unknown";
+    }
+    if (location.isFile()) {
+      InputStream in = null;
+      try {
+        in = new FileInputStream(location);
+        return DigestUtils.sha1Hex(in);
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      } finally {
+        IOUtils.closeQuietly(in);
+      }
+    }
+    List<String> files = Lists.newArrayList();
+    for (File file : FileUtils.listFiles(location, null, true)) {
+      files.add(file.getAbsolutePath() + ' ' + file.length() + ' ' + file.lastModified());
+    }
+    Collections.sort(files);
+    return hash(location.getAbsolutePath() + '\n' + Joiner.on('\n').join(files));
+  }
+
+  /**
+   * Semantic analysis of a file sees classes of the project only through their signatures, so bodies of methods and
+   * debug information are not part of this hash: recompiling a class whose signatures did not change keeps the cache.
+   *
+   * @param directory directory of class files
+   * @param classNames internal names of classes of directory
+   * @return hash of signatures of given classes
+   */
+  public static String hashClassSignatures(File directory, Collection<String> classNames) {
+    List<String> sortedClassNames = Lists.newArrayList(classNames);
+    Collections.sort(sortedClassNames);
+    SignaturesCollector collector = new SignaturesCollector();
+    for (String className : sortedClassNames) {
+      File classFile = new File(directory, className + ".class");
+      try {
+        new ClassReader(Files.toByteArray(classFile)).accept(collector, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+      } catch (IOException e) {
+        // unreadable class is not seen by semantic analysis either
+        collector.append("unreadable", className);
+      }
+    }
+    return hash(collector.toString());
+  }
+
+  /**
+   * Results of scanner are cached if it is a check, i.e. annotated with {@link Rule}, which is not required to see every file.
+   */
+  public boolean isCached(Object scanner) {
+    return scanner.getClass().isAnnotationPresent(Rule.class) && !alwaysExecutedChecks.contains(scanner.getClass());
+  }
+
+  /**
+   * @return results of previous analysis if content of file did not change, null otherwise
+   */
+  @CheckForNull
+  public FileResults get(String fileKey, String contentHash) {
+    FileResults results = previousResults.get(fileKey);
+    if (results == null || !results.contentHash.equals(contentHash)) {
+      return null;
+    }
+    return results;
+  }
+
+  /**
+   * Records results of file, either newly computed or replayed from {@link #get(String, String)}, so that they are saved.
+   */
+  public void put(String fileKey, FileResults results) {
+    currentResults.put(fileKey, results);
+  }
+
+  /**
+   * Saves results of files analyzed since creation of this cache, thus forgetting files which no longer exist.
+   */
+  public void save() {
+    DataOutputStream out = null;
+    try {
+      file.getParentFile().mkdirs();
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      out.writeInt(VERSION);
+      out.writeUTF(fingerprint);
+      out.writeInt(currentResults.size());
+      for (Map.Entry<String, FileResults> entry : currentResults.entrySet()) {
+        out.writeUTF(entry.getKey());
+        entry.getValue().write(out);
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to save incremental cache to " + file.getAbsolutePath(), e);
+    } finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  private static Map<String, FileResults> load(File file, String fingerprint) {
+    Map<String, FileResults> result = Maps.newHashMap();
+    if (!file.isFile()) {
+      return result;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != VERSION || !fingerprint.equals(in.readUTF())) {
+        LOG.info("Incremental cache is discarded, because rules or classpath changed since previous analysis");
+        return result;
+      }
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        String fileKey = in.readUTF();
+        result.put(fileKey, FileResults.read(in));
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to read incremental cache from " + file.getAbsolutePath(), e);
+      result.clear();
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+    return result;
+  }
+
+  /**
+   * Appends to a string everything of classes which can be seen from other classes: access flags, names, types and
+   * generic signatures of classes and members, values of constants and annotations.
+   */
+  private static class SignaturesCollector extends ClassVisitor {
+
+    private final StringBuilder sb = new StringBuilder();
+    private final AnnotationVisitor annotationVisitor = new AnnotationVisitor(Opcodes.ASM5) {
+      @Override
+      public void visit(String name, Object value) {
+        append("value", name, value);
+      }
+
+      @Override
+      public void visitEnum(String name, String desc, String value) {
+        append("enum", name, desc, value);
+      }
+
+      @Override
+      public AnnotationVisitor visitAnnotation(String name, String desc) {
+        append("annotation", name, desc);
+        return this;
+      }
+
+      @Override
+      public AnnotationVisitor visitArray(String name) {
+        append("array", name);
+        return this;
+      }
+
+      @Override
+      public void visitEnd() {
+        append("end");
+      }
+    };
+    private final FieldVisitor fieldVisitor = new FieldVisitor(Opcodes.ASM5) {
+      @Override
+      public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+        append("annotation", desc);
+        return annotationVisitor;
+      }
+    };
+    private final MethodVisitor methodVisitor = new MethodVisitor(Opcodes.ASM5) {
+      @Override
+      public AnnotationVisitor visitAnnotationDefault() {
+        append("default");
+        return annotationVisitor;
+      }
+
+      @Override
+      public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+        append("annotation", desc);
+        return annotationVisitor;
+      }
+
+      @Override
+      public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+        append("annotation", parameter, desc);
+        return annotationVisitor;
+      }
+    };
+
+    SignaturesCollector() {
+      super(Opcodes.ASM5);
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+      append("class", access, name, signature, superName, Arrays.toString(interfaces));
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+      append("annotation", desc);
+      return annotationVisitor;
+    }
+
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access) {
+      append("inner", name, outerName, innerName, access);
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+      append("field", access, name, desc, signature, value);
+      return fieldVisitor;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      append("method", access, name, desc, signature, Arrays.toString(exceptions));
+      return methodVisitor;
+    }
+
+    void append(Object... values) {
+      for (Object value : values) {
+        sb.append(value).append(' ');
+      }
+      sb.append('\n');
+    }
+
+    @Override
+    public String toString() {
+      return sb.toString();
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(Charsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  /**
+   * Issues, lines with NOSONAR tags and symbol table of a file.
+   */
+  public static class FileResults {
+
+    private final String contentHash;
+    private final List<Issue> issues = Lists.newArrayList();
+    private final Set<Integer> noSonarLines = Sets.newHashSet();
+    private final List<int[]> symbols = Lists.newArrayList();
+
+    public FileResults(String contentHash) {
+      this.contentHash = contentHash;
+    }
+
+    public void addIssue(CheckMessage checkMessage) {
+      Object check = checkMessage.getCheck();
+      boolean isRuleKey = check instanceof RuleKey;
+      String checkId = isRuleKey ? check.toString() : check.getClass().getName();
+      Integer line = checkMessage.getLine();
+      issues.add(new Issue(isRuleKey, checkId, line == null ? -1 : line, checkMessage.getCost(), checkMessage.isBypassExclusion(),
+        checkMessage.formatDefaultMessage()));
+    }
+
+    public void addNoSonarLines(Set<Integer> lines) {
+      noSonarLines.addAll(lines);
+    }
+
+    /**
+     * @param symbol start and end offsets of declaration, followed by start offsets of references
+     */
+    public void addSymbol(int[] symbol) {
+      symbols.add(symbol);
+    }
+
+    public List<Issue> getIssues() {
+      return Collections.unmodifiableList(issues);
+    }
+
+    public Set<Integer> getNoSonarLines() {
+      return Collections.unmodifiableSet(noSonarLines);
+    }
+
+    public List<int[]> getSymbols() {
+      return Collections.unmodifiableList(symbols);
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeUTF(contentHash);
+      out.writeInt(issues.size());
+      for (Issue issue : issues) {
+        issue.write(out);
+      }
+      out.writeInt(noSonarLines.size());
+      for (Integer line : noSonarLines) {
+        out.writeInt(line);
+      }
+      out.writeInt(symbols.size());
+      for (int[] symbol : symbols) {
+        out.writeInt(symbol.length);
+        for (int offset : symbol) {
+          out.writeInt(offset);
+        }
+      }
+    }
+
+    private static FileResults read(DataInputStream in) throws IOException {
+      FileResults results = new FileResults(in.readUTF());
+      int nbIssues = in.readInt();
+      for (int i = 0; i < nbIssues; i++) {
+        results.issues.add(Issue.read(in));
+      }
+      int nbNoSonarLines = in.readInt();
+      for (int i = 0; i < nbNoSonarLines; i++) {
+        results.noSonarLines.add(in.readInt());
+      }
+      int nbSymbols = in.readInt();
+      for (int i = 0; i < nbSymbols; i++) {
+        int[] symbol = new int[in.readInt()];
+        for (int j = 0; j < symbol.length; j++) {
+          symbol[j] = in.readInt();
+        }
+        results.symbols.add(symbol);
+      }
+      return results;
+    }
+
+  }
+
+  /**
+   * Issue logged by a check, which is identified either by a rule key or by class of check.
+   */
+  public static class Issue {
+
+    private final boolean isRuleKey;
+    private final String checkId;
+    private final int line;
+    @Nullable
+    private final Double cost;
+    private final boolean bypassExclusion;
+    private final String message;
+
+    Issue(boolean isRuleKey, String checkId, int line, @Nullable Double cost, boolean bypassExclusion, String message) {
+      this.isRuleKey = isRuleKey;
+      this.checkId = checkId;
+      this.line = line;
+      this.cost = cost;
+      this.bypassExclusion = bypassExclusion;
+      this.message = message;
+    }
+
+    public boolean isRuleKey() {
+      return isRuleKey;
+    }
+
+    /**
+     * @return rule key as in {@link RuleKey#toString()}, or name of class of check
+     */
+    public String getCheckId() {
+      return checkId;
+    }
+
+    public CheckMessage toCheckMessage(Object check) {
+      CheckMessage checkMessage = new CheckMessage(check, message);
+      if (line > 0) {
+        checkMessage.setLine(line);
+      }
+      if (cost != null) {
+        checkMessage.setCost(cost);
+      }
+      checkMessage.setBypassExclusion(bypassExclusion);
+      return checkMessage;
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeBoolean(isRuleKey);
+      out.writeUTF(checkId);
+      out.writeInt(line);
+      out.writeBoolean(cost != null);
+      if (cost != null) {
+        out.writeDouble(cost);
+      }
+      out.writeBoolean(bypassExclusion);
+      writeString(out, message);
+    }
+
+    private static Issue read(DataInputStream in) throws IOException {
+      boolean isRuleKey = in.readBoolean();
+      String checkId = in.readUTF();
+      int line = in.readInt();
+      Double cost = in.readBoolean() ? in.readDouble() : null;
+      boolean bypassExclusion = in.readBoolean();
+      String message = readString(in);
+      return new Issue(isRuleKey, checkId, line, cost, bypassExclusion, message);
+    }
+
+  }
+
+}
@@ -43,6 +43,8 @@ import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.api.utils.SonarException;
 import org.sonar.api.utils.WildcardPattern;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 
 import javax.annotation.Nullable;
 import java.io.File;
@@ -68,6 +70,7 @@ public class JavaClasspath implements BatchExtension {
   private boolean validateLibraries;
   private boolean hasJavaSources;
   private boolean initalized;
+  private SquidClassLoader classLoader;
 
   public JavaClasspath(Project project, Settings settings, FileSystem fs) {
     this(project, settings, fs, null);
@@ -227,6 +230,33 @@ public class JavaClasspath implements BatchExtension {
     return binaries;
   }
 
+  /**
+   * Class loader indexing classes of {@link #getElements()} and {@link #getBinaryDirs()}.
+   * Created on first call and shared by all the sensors of the module, so that JAR files are opened only once.
+   */
+  public SquidClassLoader getClassLoader() {
+    if (classLoader == null) {
+      List<File> files = Lists.newArrayList(getElements());
+      for (File binaryDir : getBinaryDirs()) {
+        if (!files.contains(binaryDir)) {
+          files.add(binaryDir);
+        }
+      }
+      classLoader = ClassLoaderBuilder.create(files);
+    }
+    return classLoader;
+  }
+
+  /**
+   * Invoked by container at the end of analysis of module.
+   */
+  public void stop() {
+    if (classLoader != null) {
+      classLoader.close();
+      classLoader = null;
+    }
+  }
+
   private static class WilcardPatternFileFilter implements IOFileFilter {
     private File baseDir;
     private WildcardPattern wildcardPattern;
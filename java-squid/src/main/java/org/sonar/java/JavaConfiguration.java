@@ -19,12 +19,19 @@
  */
 package org.sonar.java;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import java.nio.charset.Charset;
 
 public class JavaConfiguration {
 
   private final Charset charset;
   private boolean separateAccessorsFromMethods = true;
+  private int parsingThreads = 1;
+  @Nullable
+  private IncrementalCache incrementalCache;
+  @Nullable
+  private ExecutionTimeReport executionTimeReport;
 
   public JavaConfiguration(Charset charset) {
     this.charset = charset;
@@ -42,4 +49,36 @@ public class JavaConfiguration {
     this.separateAccessorsFromMethods = separateAccessorsFromMethods;
   }
 
+  public int getParsingThreads() {
+    return parsingThreads;
+  }
+
+  public void setParsingThreads(int parsingThreads) {
+    this.parsingThreads = parsingThreads;
+  }
+
+  @CheckForNull
+  public IncrementalCache getIncrementalCache() {
+    return incrementalCache;
+  }
+
+  /**
+   * @param incrementalCache cache of results of checks, or null to execute checks on all files
+   */
+  public void setIncrementalCache(@Nullable IncrementalCache incrementalCache) {
+    this.incrementalCache = incrementalCache;
+  }
+
+  @CheckForNull
+  public ExecutionTimeReport getExecutionTimeReport() {
+    return executionTimeReport;
+  }
+
+  /**
+   * @param executionTimeReport report where execution times of visitors are accumulated, or null to not measure them
+   */
+  public void setExecutionTimeReport(@Nullable ExecutionTimeReport executionTimeReport) {
+    this.executionTimeReport = executionTimeReport;
+  }
+
 }
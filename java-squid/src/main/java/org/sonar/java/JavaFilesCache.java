@@ -20,11 +20,10 @@
 package org.sonar.java;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import org.apache.commons.lang.StringUtils;
+import org.sonar.java.filters.SuppressWarningsIndex;
 import org.sonar.java.model.InternalSyntaxToken;
 import org.sonar.java.model.JavaTree;
 import org.sonar.java.signature.MethodSignaturePrinter;
@@ -57,7 +56,7 @@ public class JavaFilesCache extends BaseTreeVisitor implements JavaFileScanner {
   Map<String, Integer> methodStartLines = Maps.newHashMap();
 
   @VisibleForTesting
-  Multimap<Integer, String> suppressWarningLines = HashMultimap.create();
+  SuppressWarningsIndex suppressWarnings = new SuppressWarningsIndex();
 
   private File currentFile;
   private Deque<String> currentClassKey = new LinkedList<String>();
@@ -73,12 +72,12 @@ public class JavaFilesCache extends BaseTreeVisitor implements JavaFileScanner {
     return methodStartLines;
   }
 
-  public Multimap<Integer, String> getSuppressWarningLines() {
-    return suppressWarningLines;
+  public SuppressWarningsIndex getSuppressWarnings() {
+    return suppressWarnings;
   }
 
-  public boolean hasSuppressWarningLines() {
-    return !suppressWarningLines.isEmpty();
+  public boolean hasSuppressWarnings() {
+    return !suppressWarnings.isEmpty();
   }
 
   @Override
@@ -89,7 +88,7 @@ public class JavaFilesCache extends BaseTreeVisitor implements JavaFileScanner {
     currentClassKey.clear();
     parent.clear();
     anonymousInnerClassCounter.clear();
-    suppressWarningLines.clear();
+    suppressWarnings = new SuppressWarningsIndex();
     scan(tree);
   }
 
@@ -161,9 +160,7 @@ public class JavaFilesCache extends BaseTreeVisitor implements JavaFileScanner {
         break;
       }
     }
-    for (int i = startLine; i <= endLine; i++) {
-      suppressWarningLines.putAll(i, warnings);
-    }
+    suppressWarnings.add(startLine, endLine, warnings);
   }
 
   private boolean isSuppressWarningsAnnotation(AnnotationTree annotationTree) {
@@ -22,6 +22,7 @@ package org.sonar.java;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,9 +31,11 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.utils.TimeProfiler;
 import org.sonar.graph.DirectedGraph;
 import org.sonar.java.ast.AstScanner;
+import org.sonar.java.ast.visitors.FileContent;
 import org.sonar.java.ast.visitors.FileLinesVisitor;
 import org.sonar.java.ast.visitors.SyntaxHighlighterVisitor;
 import org.sonar.java.bytecode.BytecodeScanner;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.bytecode.visitor.DependenciesVisitor;
 import org.sonar.java.model.TestFileVisitorsBridge;
 import org.sonar.java.model.VisitorsBridge;
@@ -43,10 +46,13 @@ import org.sonar.squidbridge.api.SourceCode;
 import org.sonar.squidbridge.api.SourceCodeSearchEngine;
 import org.sonar.squidbridge.indexer.SquidIndex;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import java.io.File;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 public class JavaSquid implements SourceCodeSearchEngine {
 
@@ -56,6 +62,12 @@ public class JavaSquid implements SourceCodeSearchEngine {
   private final AstScanner astScanner;
   private final AstScanner astScannerForTests;
   private final BytecodeScanner bytecodeScanner;
+  private final JavaResourceLocator javaResourceLocator;
+  private final Charset charset;
+  @Nullable
+  private final ExecutionTimeReport executionTimeReport;
+  @Nullable
+  private final SonarComponents sonarComponents;
   private final DirectedGraph<Resource, Dependency> graph = new DirectedGraph<Resource, Dependency>();
 
   private boolean bytecodeScanned = false;
@@ -69,6 +81,10 @@ public class JavaSquid implements SourceCodeSearchEngine {
                    @Nullable SonarComponents sonarComponents, @Nullable Measurer measurer,
                    JavaResourceLocator javaResourceLocator, CodeVisitor... visitors) {
 
+    this.sonarComponents = sonarComponents;
+    this.javaResourceLocator = javaResourceLocator;
+    this.charset = conf.getCharset();
+    this.executionTimeReport = conf.getExecutionTimeReport();
     astScanner = JavaAstScanner.create(conf);
 
     Iterable<CodeVisitor> visitorsToBridge = Iterables.concat(Arrays.asList(javaResourceLocator), Arrays.asList(visitors));
@@ -85,17 +101,21 @@ public class JavaSquid implements SourceCodeSearchEngine {
     VisitorsBridge visitorsBridge = new VisitorsBridge(visitorsToBridge, sonarComponents);
     visitorsBridge.setCharset(conf.getCharset());
     visitorsBridge.setAnalyseAccessors(conf.separatesAccessorsFromMethods());
+    visitorsBridge.setIncrementalCache(conf.getIncrementalCache());
+    visitorsBridge.setExecutionTimeReport(executionTimeReport);
     astScanner.accept(visitorsBridge);
 
     if (sonarComponents != null) {
-      astScanner.accept(new FileLinesVisitor(sonarComponents, conf.getCharset()));
-      astScanner.accept(new SyntaxHighlighterVisitor(sonarComponents, conf.getCharset()));
+      astScanner.accept(new FileLinesVisitor(sonarComponents));
+      astScanner.accept(new SyntaxHighlighterVisitor(sonarComponents));
     }
 
     // TODO unchecked cast
     squidIndex = (SquidIndex) astScanner.getIndex();
 
     bytecodeScanner = new BytecodeScanner(squidIndex, javaResourceLocator);
+    bytecodeScanner.setReadingThreads(conf.getParsingThreads());
+    bytecodeScanner.setExecutionTimeReport(executionTimeReport);
     bytecodeScanner.accept(new DependenciesVisitor(graph));
 
     // External visitors (typically Check ones):
@@ -119,22 +139,72 @@ public class JavaSquid implements SourceCodeSearchEngine {
 
   private void scanSources(Iterable<File> sourceFiles) {
     TimeProfiler profiler = new TimeProfiler(getClass()).start("Java Main Files AST scan");
+    ExecutionTimeReport.Timer timer = startPhase("Java Main Files AST scan");
     astScanner.scan(sourceFiles);
+    stopPhase(timer);
     profiler.stop();
   }
 
   private void scanTests(Iterable<File> testFiles) {
     TimeProfiler profiler = new TimeProfiler(getClass()).start("Java Test Files AST scan");
-    astScannerForTests.simpleScan(testFiles);
+    ExecutionTimeReport.Timer timer = startPhase("Java Test Files AST scan");
+    astScannerForTests.simpleScan(indexTestFiles(testFiles));
+    stopPhase(timer);
     profiler.stop();
   }
 
+  @CheckForNull
+  private ExecutionTimeReport.Timer startPhase(String name) {
+    if (executionTimeReport == null) {
+      return null;
+    }
+    ExecutionTimeReport.Timer timer = executionTimeReport.timer(ExecutionTimeReport.PHASE, name);
+    timer.start();
+    return timer;
+  }
+
+  private static void stopPhase(@Nullable ExecutionTimeReport.Timer timer) {
+    if (timer != null) {
+      timer.stop();
+    }
+  }
+
+  /**
+   * Test files are only used to locate their classes: those files are indexed without being parsed when possible.
+   *
+   * @return files which have to be parsed
+   */
+  private Iterable<File> indexTestFiles(Iterable<File> testFiles) {
+    if (!(javaResourceLocator instanceof DefaultJavaResourceLocator)) {
+      return testFiles;
+    }
+    DefaultJavaResourceLocator defaultJavaResourceLocator = (DefaultJavaResourceLocator) javaResourceLocator;
+    List<File> filesToParse = Lists.newArrayList();
+    for (File testFile : testFiles) {
+      List<String> classKeys = ClassNamesScanner.scan(FileContent.read(testFile, charset).getContent());
+      if (classKeys == null) {
+        filesToParse.add(testFile);
+      } else {
+        defaultJavaResourceLocator.addTestFile(testFile, classKeys);
+      }
+    }
+    return filesToParse;
+  }
+
   private void scanBytecode(Collection<File> bytecodeFilesOrDirectories) {
     if (hasBytecode(bytecodeFilesOrDirectories)) {
       TimeProfiler profiler = new TimeProfiler(getClass()).start("Java bytecode scan");
-
-      bytecodeScanner.scan(bytecodeFilesOrDirectories);
+      ExecutionTimeReport.Timer timer = startPhase("Java bytecode scan");
+
+      SquidClassLoader classLoader = sonarComponents == null ? null : sonarComponents.getJavaClassLoader();
+      if (classLoader == null) {
+        bytecodeScanner.scan(bytecodeFilesOrDirectories);
+      } else {
+        // bytecode files are the ones of the classpath, already indexed by the shared class loader
+        bytecodeScanner.scan(classLoader);
+      }
       bytecodeScanned = true;
+      stopPhase(timer);
       profiler.stop();
     } else {
       LOG.warn("Java bytecode has not been made available to the analyzer. The " + Joiner.on(", ").join(bytecodeScanner.getVisitors()) + " are disabled.");
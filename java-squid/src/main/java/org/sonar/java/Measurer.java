@@ -19,9 +19,8 @@
  */
 package org.sonar.java;
 
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
@@ -32,26 +31,32 @@ import org.sonar.api.measures.PersistenceMode;
 import org.sonar.api.measures.RangeDistributionBuilder;
 import org.sonar.java.ast.visitors.AccessorVisitor;
 import org.sonar.java.ast.visitors.CommentLinesVisitor;
+import org.sonar.java.ast.visitors.ComplexityVisitor;
 import org.sonar.java.ast.visitors.LinesOfCodeVisitor;
 import org.sonar.java.ast.visitors.PublicApiChecker;
 import org.sonar.java.ast.visitors.StatementVisitor;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.ast.visitors.SubscriptionVisitorsDispatcher;
+import org.sonar.java.model.JavaTree;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.NewClassTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 
-public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor {
+/**
+ * Computes all the metrics of a file with a single walk of its tree and a single pass over its tokens:
+ * complexity of methods is accumulated while walking them instead of being computed by walking them again.
+ */
+public class Measurer extends SubscriptionVisitor {
 
   private static final Number[] LIMITS_COMPLEXITY_METHODS = {1, 2, 4, 6, 8, 10, 12};
   private static final Number[] LIMITS_COMPLEXITY_FILES = {0, 5, 10, 20, 30, 60, 90};
+  private static final Tree.Kind[] API_KINDS = PublicApiChecker.apiKinds();
 
   private final SensorContext sensorContext;
   private final FileSystem fs;
@@ -64,21 +69,48 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
 
   private final Deque<ClassTree> classTrees = new LinkedList<ClassTree>();
   private final AccessorVisitor accessorVisitor;
-  private Charset charset;
   private double classes;
 
+  private final ComplexityVisitor complexityVisitor;
+  private final Deque<ClassTree> complexityClassTrees = new LinkedList<ClassTree>();
+  private final Deque<MethodComplexity> methodComplexities = new LinkedList<MethodComplexity>();
+  private int fileComplexity;
+
+  private final PublicApiChecker publicApiChecker;
+  private final Deque<Tree> publicApiParents = new LinkedList<Tree>();
+  private int newClassDepth;
+  private double publicApi;
+  private double documentedPublicApi;
+
+  private final StatementVisitor statementVisitor = new StatementVisitor();
+  private final CommentLinesVisitor commentLinesVisitor = new CommentLinesVisitor();
+  private final LinesOfCodeVisitor linesOfCodeVisitor = new LinesOfCodeVisitor();
+  private final List<SubscriptionVisitor> visitors;
+  private final SubscriptionVisitorsDispatcher dispatcher;
+
   public Measurer(FileSystem fs, SensorContext context, boolean separateAccessorsFromMethods) {
     this.fs = fs;
     this.sensorContext = context;
     this.separateAccessorsFromMethods = separateAccessorsFromMethods;
     accessorVisitor = new AccessorVisitor();
+    complexityVisitor = new ComplexityVisitor(separateAccessorsFromMethods);
+    if (separateAccessorsFromMethods) {
+      publicApiChecker = PublicApiChecker.newInstanceWithAccessorsSeparatedFromMethods();
+    } else {
+      publicApiChecker = PublicApiChecker.newInstanceWithAccessorsHandledAsMethods();
+    }
+    visitors = ImmutableList.of(this, statementVisitor, commentLinesVisitor, linesOfCodeVisitor);
+    dispatcher = new SubscriptionVisitorsDispatcher(visitors);
   }
 
   @Override
   public List<Tree.Kind> nodesToVisit() {
-    return ImmutableList.of(Tree.Kind.CLASS, Tree.Kind.INTERFACE, Tree.Kind.ENUM, Tree.Kind.ANNOTATION_TYPE,
-        Tree.Kind.NEW_CLASS, Tree.Kind.ENUM_CONSTANT,
-        Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR);
+    return ImmutableList.<Tree.Kind>builder()
+        .add(Tree.Kind.CLASS, Tree.Kind.INTERFACE, Tree.Kind.ENUM, Tree.Kind.ANNOTATION_TYPE,
+            Tree.Kind.NEW_CLASS, Tree.Kind.ENUM_CONSTANT,
+            Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR, Tree.Kind.VARIABLE)
+        .addAll(complexityVisitor.nodesToVisit())
+        .build();
   }
 
 
@@ -90,26 +122,30 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
     complexityInMethods = 0;
     accessors = 0;
     classes = 0;
-    PublicApiChecker publicApiChecker = PublicApiChecker.newInstanceWithAccessorsHandledAsMethods();
-    if (separateAccessorsFromMethods) {
-      publicApiChecker = PublicApiChecker.newInstanceWithAccessorsSeparatedFromMethods();
-    }
-    publicApiChecker.scan(context.getTree());
+    complexityClassTrees.clear();
+    methodComplexities.clear();
+    fileComplexity = 0;
+    publicApiParents.clear();
+    newClassDepth = 0;
+    publicApi = 0;
+    documentedPublicApi = 0;
     methodComplexityDistribution = new RangeDistributionBuilder(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION, LIMITS_COMPLEXITY_METHODS);
-    super.scanFile(context);
+    for (SubscriptionVisitor visitor : visitors) {
+      visitor.setContext(context);
+    }
+    dispatcher.scan(context.getTree());
     //leave file.
-    int fileComplexity = context.getComplexity(context.getTree());
     saveMetricOnFile(CoreMetrics.CLASSES, classes);
     saveMetricOnFile(CoreMetrics.FUNCTIONS, methods);
     saveMetricOnFile(CoreMetrics.ACCESSORS, accessors);
     saveMetricOnFile(CoreMetrics.COMPLEXITY_IN_FUNCTIONS, complexityInMethods);
     saveMetricOnFile(CoreMetrics.COMPLEXITY, fileComplexity);
-    saveMetricOnFile(CoreMetrics.PUBLIC_API, publicApiChecker.getPublicApi());
-    saveMetricOnFile(CoreMetrics.PUBLIC_DOCUMENTED_API_DENSITY, publicApiChecker.getDocumentedPublicApiDensity());
-    saveMetricOnFile(CoreMetrics.PUBLIC_UNDOCUMENTED_API, publicApiChecker.getUndocumentedPublicApi());
-    saveMetricOnFile(CoreMetrics.COMMENT_LINES, new CommentLinesVisitor().commentLines(context.getTree()));
-    saveMetricOnFile(CoreMetrics.STATEMENTS, new StatementVisitor().numberOfStatements(context.getTree()));
-    saveMetricOnFile(CoreMetrics.NCLOC, new LinesOfCodeVisitor().linesOfCode(context.getTree()));
+    saveMetricOnFile(CoreMetrics.PUBLIC_API, publicApi);
+    saveMetricOnFile(CoreMetrics.PUBLIC_DOCUMENTED_API_DENSITY, PublicApiChecker.documentedPublicApiDensity(publicApi, documentedPublicApi));
+    saveMetricOnFile(CoreMetrics.PUBLIC_UNDOCUMENTED_API, publicApi - documentedPublicApi);
+    saveMetricOnFile(CoreMetrics.COMMENT_LINES, commentLinesVisitor.commentLines());
+    saveMetricOnFile(CoreMetrics.STATEMENTS, statementVisitor.numberOfStatements());
+    saveMetricOnFile(CoreMetrics.NCLOC, linesOfCodeVisitor.linesOfCode());
 
     sensorContext.saveMeasure(sonarFile, methodComplexityDistribution.build(true).setPersistenceMode(PersistenceMode.MEMORY));
 
@@ -120,12 +156,9 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
   }
 
   private void saveLinesMetric() {
-    try {
-      String content = Files.toString(context.getFile(), charset);
-      saveMetricOnFile(CoreMetrics.LINES, content.split("(\r)?\n|\r", -1).length);
-    } catch (IOException e) {
-      Throwables.propagate(e);
-    }
+    // end of file token is on last line, so there is no need to read file again
+    AstNode eof = ((JavaTree) context.getTree()).getLastChild();
+    saveMetricOnFile(CoreMetrics.LINES, eof.getTokenLine());
   }
 
   @Override
@@ -144,12 +177,41 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
         accessors++;
       } else {
         methods++;
-        int methodComplexity = context.getMethodComplexity(classTrees.peek(), methodTree);
-        methodComplexityDistribution.add(methodComplexity);
-        complexityInMethods += methodComplexity;
+        methodComplexities.push(new MethodComplexity(methodTree, classTrees.peek(), complexityClassTrees.size()));
+      }
+    }
+    visitComplexity(tree);
+    visitPublicApi(tree);
+  }
+
+  private void visitComplexity(Tree tree) {
+    if (ComplexityVisitor.isClass(tree)) {
+      complexityClassTrees.push((ClassTree) tree);
+    } else {
+      fileComplexity += complexityVisitor.nodeComplexity(tree, complexityClassTrees.peek());
+      for (MethodComplexity methodComplexity : methodComplexities) {
+        // nodes of a method are scoped by the class of the method, unless they belong to a class nested in this method
+        ClassTree enclosingClass = complexityClassTrees.size() > methodComplexity.classDepth ? complexityClassTrees.peek() : methodComplexity.enclosingClass;
+        methodComplexity.complexity += complexityVisitor.nodeComplexity(tree, enclosingClass);
       }
     }
+  }
 
+  private void visitPublicApi(Tree tree) {
+    if (tree.is(Tree.Kind.NEW_CLASS)) {
+      // nothing in an anonymous class, nor in the arguments of its instantiation, is part of public api.
+      newClassDepth++;
+    } else if (newClassDepth == 0 && tree.is(API_KINDS)) {
+      if (publicApiChecker.isPublicApi(publicApiParents.peek(), tree)) {
+        publicApi++;
+        if (publicApiChecker.getApiJavadoc(tree) != null) {
+          documentedPublicApi++;
+        }
+      }
+      if (!tree.is(Tree.Kind.VARIABLE)) {
+        publicApiParents.push(tree);
+      }
+    }
   }
 
   @Override
@@ -157,6 +219,19 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
     if (isClassTree(tree)) {
       classTrees.pop();
     }
+    if (!methodComplexities.isEmpty() && methodComplexities.peek().methodTree == tree) {
+      int methodComplexity = methodComplexities.pop().complexity;
+      methodComplexityDistribution.add(methodComplexity);
+      complexityInMethods += methodComplexity;
+    }
+    if (ComplexityVisitor.isClass(tree)) {
+      complexityClassTrees.pop();
+    }
+    if (tree.is(Tree.Kind.NEW_CLASS)) {
+      newClassDepth--;
+    } else if (newClassDepth == 0 && tree.is(API_KINDS) && !tree.is(Tree.Kind.VARIABLE)) {
+      publicApiParents.pop();
+    }
   }
 
   private boolean isClassTree(Tree tree) {
@@ -167,8 +242,16 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
     sensorContext.saveMeasure(sonarFile, new Measure(metric, value));
   }
 
-  @Override
-  public void setCharset(Charset charset) {
-    this.charset = charset;
+  private static class MethodComplexity {
+    private final MethodTree methodTree;
+    private final ClassTree enclosingClass;
+    private final int classDepth;
+    private int complexity;
+
+    MethodComplexity(MethodTree methodTree, ClassTree enclosingClass, int classDepth) {
+      this.methodTree = methodTree;
+      this.enclosingClass = enclosingClass;
+      this.classDepth = classDepth;
+    }
   }
 }
@@ -30,6 +30,7 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.source.Highlightable;
 import org.sonar.api.source.Symbolizable;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannersFactory;
 
@@ -92,6 +93,17 @@ public class SonarComponents implements BatchExtension {
     return javaClasspath.getElements();
   }
 
+  /**
+   * @return class loader of {@link #getJavaClasspath()}, shared by all the components of analysis
+   */
+  @Nullable
+  public SquidClassLoader getJavaClassLoader() {
+    if (javaClasspath == null) {
+      return null;
+    }
+    return javaClasspath.getClassLoader();
+  }
+
   public ResourcePerspectives getResourcePerspectives() {
     return resourcePerspectives;
   }
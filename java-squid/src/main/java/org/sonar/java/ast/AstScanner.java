@@ -19,15 +19,21 @@
  */
 package org.sonar.java.ast;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstAndTokenVisitor;
 import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.Grammar;
 import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
 import com.sonar.sslr.impl.Parser;
 import com.sonar.sslr.impl.ast.AstWalker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.java.ExecutionTimeReport;
 import org.sonar.java.ProgressReport;
 import org.sonar.java.ast.visitors.VisitorContext;
 import org.sonar.squidbridge.AstScannerExceptionHandler;
@@ -40,7 +46,9 @@ import org.sonar.squidbridge.api.SourceProject;
 import org.sonar.squidbridge.indexer.SquidIndex;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -52,10 +60,20 @@ public class AstScanner {
   private final List<SquidAstVisitor<LexerlessGrammar>> visitors = Lists.newArrayList();
   private final List<AstScannerExceptionHandler> astScannerExceptionHandlers = Lists.newArrayList();
   private final Parser<LexerlessGrammar> parser;
+  private final Charset charset;
   private CommentAnalyser commentAnalyser;
+  private int parsingThreads = 1;
+  @Nullable
+  private Supplier<Parser<LexerlessGrammar>> parserSupplier;
+  @Nullable
+  private ExecutionTimeReport executionTimeReport;
 
-  public AstScanner(Parser<LexerlessGrammar> parser) {
+  /**
+   * @param charset encoding of files, which must be the one of parser
+   */
+  public AstScanner(Parser<LexerlessGrammar> parser, Charset charset) {
     this.parser = parser;
+    this.charset = charset;
     this.index = new SquidIndex();
   }
 
@@ -64,7 +82,29 @@ public class AstScanner {
    */
   public AstScanner(AstScanner astScanner) {
     this.parser = astScanner.parser;
+    this.charset = astScanner.charset;
     this.index = astScanner.index;
+    this.parsingThreads = astScanner.parsingThreads;
+    this.parserSupplier = astScanner.parserSupplier;
+    this.executionTimeReport = astScanner.executionTimeReport;
+  }
+
+  /**
+   * Parses files on given number of threads, each one using a parser provided by given supplier.
+   * Visitors are still executed one file after another on the calling thread and in order of files,
+   * thus results do not depend on number of threads.
+   */
+  public void setParallelParsing(int threads, Supplier<Parser<LexerlessGrammar>> parserSupplier) {
+    Preconditions.checkArgument(threads > 0, "Number of parsing threads must be positive: " + threads);
+    this.parsingThreads = threads;
+    this.parserSupplier = parserSupplier;
+  }
+
+  /**
+   * @param executionTimeReport report where times of parsing, of each visitor and of each file are accumulated, or null to not measure them
+   */
+  public void setExecutionTimeReport(@Nullable ExecutionTimeReport executionTimeReport) {
+    this.executionTimeReport = executionTimeReport;
   }
 
   public void scan(Iterable<File> files) {
@@ -90,28 +130,43 @@ public class AstScanner {
       visitor.init();
     }
 
-    AstWalker astWalker = new AstWalker(visitors);
+    AstWalker astWalker = new AstWalker(executionTimeReport == null ? visitors : timedVisitors(executionTimeReport));
+    ExecutionTimeReport.Timer parsingTimer = executionTimeReport == null ? null : executionTimeReport.timer(ExecutionTimeReport.PHASE, "Parsing");
     int size = Iterables.size(files);
     ProgressReport progressReport = new ProgressReport("Report about progress of Java AST analyzer", TimeUnit.SECONDS.toMillis(10));
     progressReport.start(size + " source files to be analyzed");
     int count = 0;
-    for (File file : files) {
+    ParallelParser parallelParser = parsingThreads > 1 ? new ParallelParser(parserSupplier, parsingThreads, files, charset) : null;
+    try {
+      for (File file : files) {
 
-      progressReport.message(count + "/" + size + " files analyzed, current is " + file.getAbsolutePath());
-      count++;
+        progressReport.message(count + "/" + size + " files analyzed, current is " + file.getAbsolutePath());
+        count++;
 
-      context.setFile(file);
+        if (executionTimeReport != null) {
+          executionTimeReport.startFile(file);
+        }
+        ParsedFile parsedFile = parse(file, parallelParser, parsingTimer);
+        context.setFile(file, parsedFile.content);
+        if (parsedFile.recognitionException == null) {
+          try {
+            astWalker.walkAndVisit(parsedFile.ast);
+          } catch (Exception e) {
+            throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+          }
+        } else {
+          LOG.error("Unable to parse source file : " + file.getAbsolutePath());
+          LOG.error(parsedFile.recognitionException.getMessage());
 
-      try {
-        AstNode ast = parser.parse(file);
-        astWalker.walkAndVisit(ast);
-      } catch (RecognitionException e) {
-        LOG.error("Unable to parse source file : " + file.getAbsolutePath());
-        LOG.error(e.getMessage());
-
-        parseErrorWalkAndVisit(e, file);
-      } catch (Exception e) {
-        throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+          parseErrorWalkAndVisit(parsedFile.recognitionException, file);
+        }
+        if (executionTimeReport != null) {
+          executionTimeReport.stopFile();
+        }
+      }
+    } finally {
+      if (parallelParser != null) {
+        parallelParser.stop();
       }
     }
     progressReport.stop(size + "/" + size + " source files analyzed");
@@ -121,6 +176,33 @@ public class AstScanner {
     }
   }
 
+  /**
+   * When parsing is parallel, time of parsing is the one spent waiting for the file to be parsed.
+   */
+  private ParsedFile parse(File file, @Nullable ParallelParser parallelParser, @Nullable ExecutionTimeReport.Timer parsingTimer) {
+    if (parsingTimer != null) {
+      parsingTimer.start();
+    }
+    try {
+      return parallelParser == null ? ParsedFile.parse(parser, file, charset) : parallelParser.next();
+    } catch (Exception e) {
+      throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+    } finally {
+      if (parsingTimer != null) {
+        parsingTimer.stop();
+      }
+    }
+  }
+
+  private List<SquidAstVisitor<LexerlessGrammar>> timedVisitors(ExecutionTimeReport report) {
+    List<SquidAstVisitor<LexerlessGrammar>> timedVisitors = Lists.newArrayList();
+    for (SquidAstVisitor<LexerlessGrammar> visitor : visitors) {
+      ExecutionTimeReport.Timer timer = report.timer(ExecutionTimeReport.AST_VISITOR, visitor);
+      timedVisitors.add(visitor instanceof AstAndTokenVisitor ? new TimedAstAndTokenVisitor(visitor, timer) : new TimedAstVisitor(visitor, timer));
+    }
+    return timedVisitors;
+  }
+
   private void parseErrorWalkAndVisit(RecognitionException e, File file) {
     try {
       // Process the exception
@@ -166,4 +248,79 @@ public class AstScanner {
     }
   }
 
+  /**
+   * Measures time spent by a visitor, which is walked through this one.
+   */
+  private static class TimedAstVisitor extends SquidAstVisitor<LexerlessGrammar> {
+    protected final SquidAstVisitor<LexerlessGrammar> visitor;
+    protected final ExecutionTimeReport.Timer timer;
+
+    TimedAstVisitor(SquidAstVisitor<LexerlessGrammar> visitor, ExecutionTimeReport.Timer timer) {
+      this.visitor = visitor;
+      this.timer = timer;
+    }
+
+    @Override
+    public List<AstNodeType> getAstNodeTypesToVisit() {
+      return visitor.getAstNodeTypesToVisit();
+    }
+
+    @Override
+    public void visitFile(@Nullable AstNode ast) {
+      timer.start();
+      try {
+        visitor.visitFile(ast);
+      } finally {
+        timer.stop();
+      }
+    }
+
+    @Override
+    public void visitNode(AstNode ast) {
+      timer.start();
+      try {
+        visitor.visitNode(ast);
+      } finally {
+        timer.stop();
+      }
+    }
+
+    @Override
+    public void leaveNode(AstNode ast) {
+      timer.start();
+      try {
+        visitor.leaveNode(ast);
+      } finally {
+        timer.stop();
+      }
+    }
+
+    @Override
+    public void leaveFile(@Nullable AstNode ast) {
+      timer.start();
+      try {
+        visitor.leaveFile(ast);
+      } finally {
+        timer.stop();
+      }
+    }
+  }
+
+  private static class TimedAstAndTokenVisitor extends TimedAstVisitor implements AstAndTokenVisitor {
+
+    TimedAstAndTokenVisitor(SquidAstVisitor<LexerlessGrammar> visitor, ExecutionTimeReport.Timer timer) {
+      super(visitor, timer);
+    }
+
+    @Override
+    public void visitToken(Token token) {
+      timer.start();
+      try {
+        ((AstAndTokenVisitor) visitor).visitToken(token);
+      } finally {
+        timer.stop();
+      }
+    }
+  }
+
 }
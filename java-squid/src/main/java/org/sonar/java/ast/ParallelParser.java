@@ -0,0 +1,108 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.google.common.base.Throwables;
+import com.google.common.base.Supplier;
+import com.sonar.sslr.impl.Parser;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Parses files ahead on a pool of threads, each thread using its own parser, while ASTs are consumed in order of files.
+ * Number of files parsed ahead is bounded, so that ASTs waiting to be visited do not exhaust memory.
+ */
+class ParallelParser {
+
+  private final ExecutorService executor;
+  private final ThreadLocal<Parser<LexerlessGrammar>> parsers;
+  private final Iterator<File> filesToSubmit;
+  private final Charset charset;
+  private final Deque<Future<ParsedFile>> results = new ArrayDeque<Future<ParsedFile>>();
+
+  ParallelParser(final Supplier<Parser<LexerlessGrammar>> parserSupplier, int threads, Iterable<File> files, Charset charset) {
+    this.charset = charset;
+    this.parsers = new ThreadLocal<Parser<LexerlessGrammar>>() {
+      @Override
+      protected Parser<LexerlessGrammar> initialValue() {
+        return parserSupplier.get();
+      }
+    };
+    this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private int count = 0;
+
+      @Override
+      public synchronized Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "java-parser-" + count++);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    this.filesToSubmit = files.iterator();
+    for (int i = 0; i < 2 * threads; i++) {
+      submitNext();
+    }
+  }
+
+  private void submitNext() {
+    if (filesToSubmit.hasNext()) {
+      final File file = filesToSubmit.next();
+      results.add(executor.submit(new Callable<ParsedFile>() {
+        @Override
+        public ParsedFile call() {
+          return ParsedFile.parse(parsers.get(), file, charset);
+        }
+      }));
+    }
+  }
+
+  /**
+   * Returns next file, in order of files given at creation.
+   * Exception thrown while reading file is rethrown as is.
+   */
+  ParsedFile next() {
+    Future<ParsedFile> result = results.remove();
+    submitNext();
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    }
+  }
+
+  void stop() {
+    executor.shutdownNow();
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import org.sonar.java.ast.visitors.FileContent;
+import org.sonar.java.parser.sslr.ActionParser2;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.nio.charset.Charset;
+
+/**
+ * Content of a file along with its AST, or with the exception raised by parser when AST can not be built.
+ */
+class ParsedFile {
+
+  final FileContent content;
+  @Nullable
+  final AstNode ast;
+  @Nullable
+  final RecognitionException recognitionException;
+
+  private ParsedFile(FileContent content, @Nullable AstNode ast, @Nullable RecognitionException recognitionException) {
+    this.content = content;
+    this.ast = ast;
+    this.recognitionException = recognitionException;
+  }
+
+  static ParsedFile parse(Parser<LexerlessGrammar> parser, File file, Charset charset) {
+    FileContent content = FileContent.read(file, charset);
+    try {
+      return new ParsedFile(content, parse(parser, file, content), null);
+    } catch (RecognitionException e) {
+      return new ParsedFile(content, null, e);
+    }
+  }
+
+  /**
+   * Tokens are located in the file, which other parsers than {@link ActionParser2} only do when they read the file themselves.
+   */
+  private static AstNode parse(Parser<LexerlessGrammar> parser, File file, FileContent content) {
+    if (parser instanceof ActionParser2) {
+      return ((ActionParser2) parser).parse(content.getContent(), file.toURI());
+    }
+    return parser.parse(file);
+  }
+
+}
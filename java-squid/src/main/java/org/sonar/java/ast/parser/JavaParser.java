@@ -25,16 +25,26 @@ import java.nio.charset.Charset;
 
 public class JavaParser {
 
+  /**
+   * Grammar is built once per thread and shared by all the parsers of this thread: compiled regular expressions of its
+   * rules keep the state of their last match, so that it cannot be used by several threads at once.
+   */
+  private static final ThreadLocal<ActionParser2.ActionGrammar> GRAMMAR = new ThreadLocal<ActionParser2.ActionGrammar>() {
+    @Override
+    protected ActionParser2.ActionGrammar initialValue() {
+      return new ActionParser2.ActionGrammar(
+        JavaLexer.createGrammarBuilder(),
+        JavaGrammar.class,
+        new TreeFactory(),
+        JavaLexer.COMPILATION_UNIT);
+    }
+  };
+
   private JavaParser() {
   }
 
   public static ActionParser2 createParser(Charset charset) {
-    return new ActionParser2(
-      charset,
-      JavaLexer.createGrammarBuilder(),
-      JavaGrammar.class,
-      new TreeFactory(),
-      JavaLexer.COMPILATION_UNIT);
+    return new ActionParser2(charset, GRAMMAR.get());
   }
 
 }
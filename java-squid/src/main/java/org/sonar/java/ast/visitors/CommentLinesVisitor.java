@@ -20,21 +20,22 @@
 package org.sonar.java.ast.visitors;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Sets;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
 import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.squidbridge.CommentAnalyser;
 
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
 
 public class CommentLinesVisitor extends SubscriptionVisitor {
 
-  private Set<Integer> comments = Sets.newHashSet();
+  private static final String NOSONAR = "NOSONAR";
+
+  private final BitSet comments = new BitSet();
   private boolean seenFirstToken;
-  private JavaCommentAnalyser commentAnalyser = new JavaCommentAnalyser();
 
   @Override
   public List<Tree.Kind> nodesToVisit() {
@@ -42,25 +43,34 @@ public class CommentLinesVisitor extends SubscriptionVisitor {
   }
 
   public int commentLines(CompilationUnitTree tree) {
+    clear();
+    visitTokens(tree);
+    return commentLines();
+  }
+
+  /**
+   * Number of comment lines of the file scanned, when traversal is performed by {@link SubscriptionVisitorsDispatcher}.
+   */
+  public int commentLines() {
+    return comments.cardinality();
+  }
+
+  @Override
+  public void setContext(JavaFileScannerContext context) {
+    super.setContext(context);
+    clear();
+  }
+
+  private void clear() {
     comments.clear();
     seenFirstToken = false;
-    visitTokens(tree);
-    return comments.size();
   }
 
   @Override
   public void visitToken(SyntaxToken syntaxToken) {
     for (SyntaxTrivia trivia : syntaxToken.trivias()) {
       if (seenFirstToken) {
-        String[] commentLines = commentAnalyser.getContents(trivia.comment())
-            .split("(\r)?\n|\r", -1);
-        int line = trivia.startLine();
-        for (String commentLine : commentLines) {
-          if (!commentLine.contains("NOSONAR") && !commentAnalyser.isBlank(commentLine)) {
-            comments.add(line);
-          }
-          line++;
-        }
+        visitComment(trivia.comment(), trivia.startLine());
       } else {
         seenFirstToken = true;
       }
@@ -68,14 +78,50 @@ public class CommentLinesVisitor extends SubscriptionVisitor {
     seenFirstToken = true;
   }
 
+  /**
+   * Scans lines of the contents of the comment in place, lines being terminated by "\n", "\r\n" or "\r".
+   */
+  private void visitComment(String comment, int startLine) {
+    int contentsStart = 2;
+    int contentsEnd = comment.startsWith("//") ? comment.length() : (comment.length() - 2);
+    int line = startLine;
+    int lineStart = contentsStart;
+    for (int i = contentsStart; i <= contentsEnd; i++) {
+      char c = i < contentsEnd ? comment.charAt(i) : '\n';
+      if (c == '\n' || c == '\r') {
+        if (!containsNoSonar(comment, lineStart, i) && !JavaCommentAnalyser.isBlank(comment, lineStart, i)) {
+          comments.set(line);
+        }
+        line++;
+        if (c == '\r' && i + 1 < contentsEnd && comment.charAt(i + 1) == '\n') {
+          i++;
+        }
+        lineStart = i + 1;
+      }
+    }
+  }
+
+  private static boolean containsNoSonar(String comment, int start, int end) {
+    for (int i = start; i <= end - NOSONAR.length(); i++) {
+      if (comment.startsWith(NOSONAR, i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public static class JavaCommentAnalyser extends CommentAnalyser {
 
     @Override
     public boolean isBlank(String line) {
+      return isBlank(line, 0, line.length());
+    }
+
+    static boolean isBlank(String text, int start, int end) {
       // Implementation of this method was taken from org.sonar.squidbridge.text.Line#isThereBlankComment()
       // TODO Godin: for some languages we use Character.isLetterOrDigit instead of Character.isWhitespace
-      for (int i = 0; i < line.length(); i++) {
-        char character = line.charAt(i);
+      for (int i = start; i < end; i++) {
+        char character = text.charAt(i);
         if (!Character.isWhitespace(character) && character != '*' && character != '/') {
           return false;
         }
@@ -27,12 +27,28 @@ import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
+import javax.annotation.Nullable;
+
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 
 public class ComplexityVisitor extends SubscriptionVisitor {
 
+  private static final Tree.Kind[] BRANCHING_KINDS = {
+      Tree.Kind.IF_STATEMENT,
+      Tree.Kind.FOR_STATEMENT,
+      Tree.Kind.FOR_EACH_STATEMENT,
+      Tree.Kind.DO_STATEMENT,
+      Tree.Kind.WHILE_STATEMENT,
+      Tree.Kind.RETURN_STATEMENT,
+      Tree.Kind.THROW_STATEMENT,
+      Tree.Kind.CATCH,
+      Tree.Kind.CONDITIONAL_EXPRESSION,
+      Tree.Kind.CONDITIONAL_AND,
+      Tree.Kind.CONDITIONAL_OR
+  };
+
   private int complexity;
   private AccessorVisitor accessorVisitor = new AccessorVisitor();
   private Deque<ClassTree> classTrees = new LinkedList<ClassTree>();
@@ -47,18 +63,8 @@ public class ComplexityVisitor extends SubscriptionVisitor {
     return ImmutableList.<Tree.Kind>builder()
         .add(Tree.Kind.METHOD)
         .add(Tree.Kind.CONSTRUCTOR)
-        .add(Tree.Kind.IF_STATEMENT)
-        .add(Tree.Kind.FOR_STATEMENT)
-        .add(Tree.Kind.FOR_EACH_STATEMENT)
-        .add(Tree.Kind.DO_STATEMENT)
-        .add(Tree.Kind.WHILE_STATEMENT)
-        .add(Tree.Kind.RETURN_STATEMENT)
-        .add(Tree.Kind.THROW_STATEMENT)
+        .add(BRANCHING_KINDS)
         .add(Tree.Kind.CASE_LABEL)
-        .add(Tree.Kind.CATCH)
-        .add(Tree.Kind.CONDITIONAL_EXPRESSION)
-        .add(Tree.Kind.CONDITIONAL_AND)
-        .add(Tree.Kind.CONDITIONAL_OR)
         .add(Tree.Kind.CLASS)
         .add(Tree.Kind.ENUM)
         .add(Tree.Kind.ANNOTATION_TYPE)
@@ -84,43 +90,58 @@ public class ComplexityVisitor extends SubscriptionVisitor {
   public void visitNode(Tree tree) {
     if (isClass(tree)) {
       classTrees.push((ClassTree) tree);
-    } else if (isMethod(tree)) {
-      computeMethodComplexity((MethodTree) tree);
+    } else {
+      complexity += nodeComplexity(tree, classTrees.peek());
+    }
+  }
+
+  /**
+   * Complexity brought by the given node alone, without the one of its children.
+   *
+   * @param enclosingClass innermost enclosing class, enum or annotation type, used to tell accessors apart
+   */
+  public int nodeComplexity(Tree tree, @Nullable ClassTree enclosingClass) {
+    if (isMethod(tree)) {
+      return methodComplexity((MethodTree) tree, enclosingClass);
     } else if (tree.is(Tree.Kind.CASE_LABEL)) {
       CaseLabelTree caseLabelTree = (CaseLabelTree) tree;
-      if (!"default".equals(caseLabelTree.caseOrDefaultKeyword().text())) {
-        complexity++;
-      }
-    } else {
-      complexity++;
+      return "default".equals(caseLabelTree.caseOrDefaultKeyword().text()) ? 0 : 1;
+    } else if (tree.is(BRANCHING_KINDS)) {
+      return 1;
     }
+    return 0;
   }
 
-  private boolean isMethod(Tree tree) {
+  private static boolean isMethod(Tree tree) {
     return tree.is(Tree.Kind.METHOD) || tree.is(Tree.Kind.CONSTRUCTOR);
   }
 
-  private boolean isClass(Tree tree) {
+  /**
+   * Classes scoping the accessors of their methods: interfaces are not part of them.
+   */
+  public static boolean isClass(Tree tree) {
     return tree.is(Tree.Kind.CLASS) ||
         tree.is(Tree.Kind.ENUM) ||
         tree.is(Tree.Kind.ANNOTATION_TYPE);
   }
 
-  private void computeMethodComplexity(MethodTree methodTree) {
+  private int methodComplexity(MethodTree methodTree, @Nullable ClassTree enclosingClass) {
+    int result = 0;
     BlockTree block = methodTree.block();
     if (block != null) {
-      if (classTrees.isEmpty() || !isAccessor(methodTree)) {
-        complexity++;
+      if (enclosingClass == null || !isAccessor(enclosingClass, methodTree)) {
+        result++;
       }
       if (!block.body().isEmpty() && Iterables.getLast(block.body()).is(Tree.Kind.RETURN_STATEMENT)) {
         //minus one because we are going to count the return with +1
-        complexity--;
+        result--;
       }
     }
+    return result;
   }
 
-  private boolean isAccessor(MethodTree methodTree) {
-    return analyseAccessors && accessorVisitor.isAccessor(classTrees.peek(), methodTree);
+  private boolean isAccessor(ClassTree classTree, MethodTree methodTree) {
+    return analyseAccessors && accessorVisitor.isAccessor(classTree, methodTree);
   }
 
 
@@ -0,0 +1,104 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.base.Throwables;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Content of a source file, read once by the scanner and shared by visitors of the file through {@link VisitorContext}.
+ * Lines are terminated by "\n", "\r\n" or "\r".
+ */
+public class FileContent {
+
+  private final String content;
+  private final int[] lineStarts;
+  private final int linesCount;
+
+  public FileContent(String content) {
+    this.content = content;
+    int[] starts = new int[16];
+    int count = 1;
+    int length = content.length();
+    for (int i = 0; i < length; i++) {
+      char c = content.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == length || content.charAt(i + 1) != '\n'))) {
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count] = i + 1;
+        count++;
+      }
+    }
+    this.lineStarts = starts;
+    this.linesCount = count;
+  }
+
+  public static FileContent read(File file, Charset charset) {
+    try {
+      return new FileContent(Files.toString(file, charset));
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * @return number of line terminators of the given text, which therefore spans this number of lines plus one
+   */
+  public static int countLineTerminators(String text) {
+    int count = 0;
+    int length = text.length();
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == length || text.charAt(i + 1) != '\n'))) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  /**
+   * @return number of lines, including last one even if empty, i.e. number of line terminators plus one
+   */
+  public int getLinesCount() {
+    return linesCount;
+  }
+
+  /**
+   * @param line starts from 1
+   * @return offset of first character of the line
+   */
+  public int getLineStart(int line) {
+    if (line < 1 || line > linesCount) {
+      throw new IllegalArgumentException("Line " + line + " is out of range [1, " + linesCount + "]");
+    }
+    return lineStarts[line - 1];
+  }
+
+}
@@ -20,23 +20,36 @@
 package org.sonar.java.ast.visitors;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Sets;
 import org.sonar.java.model.InternalSyntaxToken;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
 import org.sonar.plugins.java.api.tree.Tree;
 
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
 
 public class LinesOfCodeVisitor extends SubscriptionVisitor{
 
-  private Set<Integer> lines = Sets.newHashSet();
+  private final BitSet lines = new BitSet();
 
   public int linesOfCode(CompilationUnitTree tree) {
     lines.clear();
     visitTokens(tree);
-    return lines.size();
+    return linesOfCode();
+  }
+
+  /**
+   * Number of lines of code of the file scanned, when traversal is performed by {@link SubscriptionVisitorsDispatcher}.
+   */
+  public int linesOfCode() {
+    return lines.cardinality();
+  }
+
+  @Override
+  public void setContext(JavaFileScannerContext context) {
+    super.setContext(context);
+    lines.clear();
   }
 
   @Override
@@ -48,7 +61,7 @@ public class LinesOfCodeVisitor extends SubscriptionVisitor{
   public void visitToken(SyntaxToken syntaxToken) {
     InternalSyntaxToken internalSyntaxToken = (InternalSyntaxToken) syntaxToken;
     if(!internalSyntaxToken.isEOF()) {
-      lines.add(internalSyntaxToken.getLine());
+      lines.set(internalSyntaxToken.getLine());
     }
   }
 }
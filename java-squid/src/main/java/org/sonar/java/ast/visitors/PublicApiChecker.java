@@ -293,6 +293,10 @@ public class PublicApiChecker extends BaseTreeVisitor {
   }
 
   public double getDocumentedPublicApiDensity() {
+    return documentedPublicApiDensity(publicApi, documentedPublicApi);
+  }
+
+  public static double documentedPublicApiDensity(double publicApi, double documentedPublicApi) {
     if (Double.doubleToRawLongBits(publicApi) == 0L) {
       return 100.0;
     }
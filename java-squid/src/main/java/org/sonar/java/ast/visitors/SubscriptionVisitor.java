@@ -62,12 +62,19 @@ public abstract class SubscriptionVisitor implements JavaFileScanner, CodeVisito
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
-    this.context = context;
-    semanticModel = (SemanticModel) context.getSemanticModel();
+    setContext(context);
     scanTree(context.getTree());
     visitTokens(context.getTree());
   }
 
+  /**
+   * Sets context of file to scan, when traversal is performed by {@link SubscriptionVisitorsDispatcher}.
+   */
+  public void setContext(JavaFileScannerContext context) {
+    this.context = context;
+    semanticModel = (SemanticModel) context.getSemanticModel();
+  }
+
   protected void scanTree(Tree tree) {
     nodesToVisit = nodesToVisit();
     visit(tree);
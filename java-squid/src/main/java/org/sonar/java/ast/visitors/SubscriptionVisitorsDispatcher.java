@@ -0,0 +1,163 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.sonar.sslr.api.Token;
+import org.sonar.java.model.InternalSyntaxToken;
+import org.sonar.java.model.JavaTree;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executes several {@link SubscriptionVisitor} with a single walk of the tree and a single pass over tokens,
+ * by dispatching each node only to visitors subscribed to its kind.
+ */
+public class SubscriptionVisitorsDispatcher {
+
+  private final Map<Tree.Kind, SubscriptionVisitor[]> visitorsByKind;
+  private final SubscriptionVisitor[] tokenVisitors;
+  private final SubscriptionVisitor[] triviaVisitors;
+
+  public SubscriptionVisitorsDispatcher(List<SubscriptionVisitor> visitors) {
+    Map<Tree.Kind, List<SubscriptionVisitor>> subscriptions = Maps.newEnumMap(Tree.Kind.class);
+    List<SubscriptionVisitor> tokenSubscriptions = Lists.newArrayList();
+    List<SubscriptionVisitor> triviaSubscriptions = Lists.newArrayList();
+    for (SubscriptionVisitor visitor : visitors) {
+      Collection<Tree.Kind> nodesToVisit = visitor.nodesToVisit();
+      for (Tree.Kind kind : Sets.newEnumSet(nodesToVisit, Tree.Kind.class)) {
+        List<SubscriptionVisitor> subscribers = subscriptions.get(kind);
+        if (subscribers == null) {
+          subscribers = Lists.newArrayList();
+          subscriptions.put(kind, subscribers);
+        }
+        subscribers.add(visitor);
+      }
+      if (nodesToVisit.contains(Tree.Kind.TOKEN) || nodesToVisit.contains(Tree.Kind.TRIVIA)) {
+        tokenSubscriptions.add(visitor);
+      }
+      if (nodesToVisit.contains(Tree.Kind.TRIVIA)) {
+        triviaSubscriptions.add(visitor);
+      }
+    }
+    visitorsByKind = Maps.newEnumMap(Tree.Kind.class);
+    for (Map.Entry<Tree.Kind, List<SubscriptionVisitor>> entry : subscriptions.entrySet()) {
+      visitorsByKind.put(entry.getKey(), toArray(entry.getValue()));
+    }
+    tokenVisitors = toArray(tokenSubscriptions);
+    triviaVisitors = toArray(triviaSubscriptions);
+  }
+
+  private static SubscriptionVisitor[] toArray(List<SubscriptionVisitor> visitors) {
+    return visitors.toArray(new SubscriptionVisitor[visitors.size()]);
+  }
+
+  /**
+   * A visitor can be dispatched only if it relies on the traversal of {@link SubscriptionVisitor},
+   * i.e. it does not override any of the methods which drive this traversal.
+   */
+  public static boolean canDispatch(JavaFileScanner scanner) {
+    if (!(scanner instanceof SubscriptionVisitor)) {
+      return false;
+    }
+    Class<?> clazz = scanner.getClass();
+    while (clazz != SubscriptionVisitor.class) {
+      if (declares(clazz, "scanFile", JavaFileScannerContext.class)
+        || declares(clazz, "scanTree", Tree.class)
+        || declares(clazz, "visitTokens", CompilationUnitTree.class)
+        || declares(clazz, "isSubscribed", Tree.class)) {
+        return false;
+      }
+      clazz = clazz.getSuperclass();
+    }
+    return true;
+  }
+
+  private static boolean declares(Class<?> clazz, String name, Class<?> parameterType) {
+    try {
+      clazz.getDeclaredMethod(name, parameterType);
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+
+  /**
+   * Context of file must have been given to each visitor through {@link SubscriptionVisitor#setContext(JavaFileScannerContext)}.
+   */
+  public void scan(CompilationUnitTree tree) {
+    visit(tree);
+    if (tokenVisitors.length > 0) {
+      visitTokens(tree);
+    }
+  }
+
+  private void visit(Tree tree) {
+    SubscriptionVisitor[] subscribers = visitorsByKind.get(((JavaTree) tree).getKind());
+    if (subscribers != null) {
+      for (SubscriptionVisitor subscriber : subscribers) {
+        subscriber.visitNode(tree);
+      }
+    }
+    JavaTree javaTree = (JavaTree) tree;
+    if (!javaTree.isLeaf()) {
+      for (Iterator<Tree> iter = javaTree.childrenIterator(); iter.hasNext(); ) {
+        Tree next = iter.next();
+        if (next != null) {
+          visit(next);
+        }
+      }
+    }
+    if (subscribers != null) {
+      for (SubscriptionVisitor subscriber : subscribers) {
+        subscriber.leaveNode(tree);
+      }
+    }
+  }
+
+  private void visitTokens(CompilationUnitTree tree) {
+    for (Token token : ((JavaTree) tree).getAstNode().getTokens()) {
+      SyntaxToken syntaxToken = new InternalSyntaxToken(token);
+      for (SubscriptionVisitor visitor : tokenVisitors) {
+        visitor.visitToken(syntaxToken);
+      }
+      if (triviaVisitors.length > 0) {
+        for (SyntaxTrivia syntaxTrivia : syntaxToken.trivias()) {
+          for (SubscriptionVisitor visitor : triviaVisitors) {
+            visitor.visitTrivia(syntaxTrivia);
+          }
+        }
+      }
+    }
+  }
+
+}
@@ -41,6 +41,7 @@ public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
   private final Stack<SourceCode> sourceCodeStack = new Stack<SourceCode>();
   private final SourceProject project;
   private File file;
+  private FileContent fileContent;
   private CommentAnalyser commentAnalyser;
 
   public VisitorContext(SourceProject project) {
@@ -80,9 +81,10 @@ public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
     return sourceCodeStack.peek();
   }
 
-  public void setFile(File file) {
+  public void setFile(File file, FileContent fileContent) {
     popTillSourceProject();
     this.file = file;
+    this.fileContent = fileContent;
   }
 
   private void popTillSourceProject() {
@@ -97,6 +99,13 @@ public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
     return file;
   }
 
+  /**
+   * @return content of the file being visited, so that visitors do not have to read it again
+   */
+  public FileContent getFileContent() {
+    return fileContent;
+  }
+
   public SourceProject getProject() {
     return project;
   }
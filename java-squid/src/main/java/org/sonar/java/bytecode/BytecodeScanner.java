@@ -19,6 +19,8 @@
  */
 package org.sonar.java.bytecode;
 
+import com.google.common.base.Preconditions;
+import org.sonar.java.ExecutionTimeReport;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmClassProvider;
 import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
@@ -32,6 +34,7 @@ import org.sonar.squidbridge.api.CodeScanner;
 import org.sonar.squidbridge.api.CodeVisitor;
 import org.sonar.squidbridge.indexer.SquidIndex;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Collection;
 import java.util.Collections;
@@ -40,20 +43,62 @@ public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
 
   private final SquidIndex indexer;
   private JavaResourceLocator javaResourceLocator;
+  private int readingThreads = 1;
+  @Nullable
+  private ExecutionTimeReport executionTimeReport;
 
   public BytecodeScanner(SquidIndex indexer, JavaResourceLocator javaResourceLocator) {
     this.indexer = indexer;
     this.javaResourceLocator = javaResourceLocator;
   }
 
+  /**
+   * Reads class files on given number of threads. Classes are still decorated and visited one after another,
+   * as decorating a class links it to the classes it uses.
+   */
+  public void setReadingThreads(int readingThreads) {
+    Preconditions.checkArgument(readingThreads > 0, "Number of reading threads must be positive: " + readingThreads);
+    this.readingThreads = readingThreads;
+  }
+
+  /**
+   * @param executionTimeReport report where times of each visitor are accumulated, or null to not measure them
+   */
+  public void setExecutionTimeReport(@Nullable ExecutionTimeReport executionTimeReport) {
+    this.executionTimeReport = executionTimeReport;
+  }
+
   public BytecodeScanner scan(Collection<File> bytecodeFilesOrDirectories) {
-    ClassLoader classLoader = ClassLoaderBuilder.create(bytecodeFilesOrDirectories);
-    scanClasses(javaResourceLocator.classKeys(), new AsmClassProviderImpl(classLoader));
-    // TODO unchecked cast
-    ((SquidClassLoader) classLoader).close();
+    SquidClassLoader classLoader = ClassLoaderBuilder.create(bytecodeFilesOrDirectories);
+    scan(classLoader);
+    classLoader.close();
+    return this;
+  }
+
+  /**
+   * Scans classes through a class loader shared with other components, thus not closed by this method.
+   */
+  public BytecodeScanner scan(ClassLoader classLoader) {
+    Collection<String> classes = javaResourceLocator.classKeys();
+    AsmClassProviderImpl classProvider = new AsmClassProviderImpl(classLoader);
+    if (readingThreads > 1) {
+      readAhead(classes, classProvider, classLoader);
+    }
+    scanClasses(classes, classProvider);
     return this;
   }
 
+  private void readAhead(Collection<String> classes, AsmClassProviderImpl classProvider, ClassLoader classLoader) {
+    ParallelClassFileReader reader = new ParallelClassFileReader(classLoader, readingThreads, classes);
+    try {
+      for (String key : classes) {
+        classProvider.getClass(key, DETAIL_LEVEL.STRUCTURE_AND_CALLS, reader.next());
+      }
+    } finally {
+      reader.stop();
+    }
+  }
+
   protected BytecodeScanner scanClasses(Collection<String> classes, AsmClassProvider classProvider) {
     loadByteCodeInformation(classes, classProvider);
     linkVirtualMethods(classes, classProvider);
@@ -73,11 +118,20 @@ public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
 
   private void notifyBytecodeVisitors(Collection<String> keys, AsmClassProvider classProvider) {
     BytecodeVisitor[] visitorArray = getVisitors().toArray(new BytecodeVisitor[getVisitors().size()]);
+    ExecutionTimeReport.Timer[] timers = null;
+    if (executionTimeReport != null) {
+      timers = new ExecutionTimeReport.Timer[visitorArray.length];
+      for (int i = 0; i < visitorArray.length; i++) {
+        timers[i] = executionTimeReport.timer(ExecutionTimeReport.BYTECODE_VISITOR, visitorArray[i]);
+      }
+    }
     for (String key : keys) {
       try {
         AsmClass asmClass = classProvider.getClass(key, DETAIL_LEVEL.STRUCTURE_AND_CALLS);
-        BytecodeVisitorNotifier visitorNotifier = new BytecodeVisitorNotifier(asmClass, visitorArray);
+        BytecodeVisitorNotifier visitorNotifier = new BytecodeVisitorNotifier(asmClass, visitorArray, timers);
         visitorNotifier.notifyVisitors(indexer, javaResourceLocator);
+        // calls of visited class are no longer needed: visitors only go through calls of the class they visit
+        asmClass.releaseCalls();
       } catch (Exception exception) {
         throw new AnalysisException("Unable to analyze .class file " + key, exception);
       }
@@ -19,6 +19,7 @@
  */
 package org.sonar.java.bytecode;
 
+import org.sonar.java.ExecutionTimeReport;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmEdge;
 import org.sonar.java.bytecode.asm.AsmField;
@@ -28,15 +29,27 @@ import org.sonar.java.bytecode.visitor.BytecodeVisitor;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.squidbridge.indexer.SquidIndex;
 
+import javax.annotation.Nullable;
+
 public class BytecodeVisitorNotifier {
 
   private final AsmClass asmClass;
   private final BytecodeVisitor[] bytecodeVisitors;
+  @Nullable
+  private final ExecutionTimeReport.Timer[] timers;
 
   public BytecodeVisitorNotifier(AsmClass asmClass, BytecodeVisitor[] bytecodeVisitors) {
+    this(asmClass, bytecodeVisitors, null);
+  }
+
+  /**
+   * @param timers timer of each visitor, at same index, or null to not measure time spent by visitors
+   */
+  public BytecodeVisitorNotifier(AsmClass asmClass, BytecodeVisitor[] bytecodeVisitors, @Nullable ExecutionTimeReport.Timer[] timers) {
     this.asmClass = asmClass;
     this.bytecodeVisitors = new BytecodeVisitor[bytecodeVisitors.length];
     System.arraycopy(bytecodeVisitors, 0, this.bytecodeVisitors, 0, bytecodeVisitors.length);
+    this.timers = timers;
   }
 
   public void notifyVisitors(SquidIndex indexer, JavaResourceLocator javaResourceLocator) {
@@ -63,33 +76,55 @@ public class BytecodeVisitorNotifier {
 
   private void callVisitEdgeForSpecificAsmResource(AsmResource resource) {
     for (AsmEdge edge : resource.getOutgoingEdges()) {
-      for (BytecodeVisitor visitor : bytecodeVisitors) {
-        visitor.visitEdge(edge);
+      for (int i = 0; i < bytecodeVisitors.length; i++) {
+        start(i);
+        bytecodeVisitors[i].visitEdge(edge);
+        stop(i);
       }
     }
   }
 
   private void callVisitMethod(AsmMethod asmMethod) {
-    for (BytecodeVisitor visitor : bytecodeVisitors) {
-      visitor.visitMethod(asmMethod);
+    for (int i = 0; i < bytecodeVisitors.length; i++) {
+      start(i);
+      bytecodeVisitors[i].visitMethod(asmMethod);
+      stop(i);
     }
   }
 
   private void callVisitField(AsmField asmField) {
-    for (BytecodeVisitor visitor : bytecodeVisitors) {
-      visitor.visitField(asmField);
+    for (int i = 0; i < bytecodeVisitors.length; i++) {
+      start(i);
+      bytecodeVisitors[i].visitField(asmField);
+      stop(i);
     }
   }
 
   private void callVisitClass() {
-    for (BytecodeVisitor visitor : bytecodeVisitors) {
-      visitor.visitClass(asmClass);
+    for (int i = 0; i < bytecodeVisitors.length; i++) {
+      start(i);
+      bytecodeVisitors[i].visitClass(asmClass);
+      stop(i);
     }
   }
 
   private void callLeaveClass() {
-    for (BytecodeVisitor visitor : bytecodeVisitors) {
-      visitor.leaveClass(asmClass);
+    for (int i = 0; i < bytecodeVisitors.length; i++) {
+      start(i);
+      bytecodeVisitors[i].leaveClass(asmClass);
+      stop(i);
+    }
+  }
+
+  private void start(int visitorIndex) {
+    if (timers != null) {
+      timers[visitorIndex].start();
+    }
+  }
+
+  private void stop(int visitorIndex) {
+    if (timers != null) {
+      timers[visitorIndex].stop();
     }
   }
 
@@ -0,0 +1,118 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode;
+
+import com.google.common.base.Throwables;
+import org.sonar.java.bytecode.loader.ClassFileReader;
+
+import javax.annotation.CheckForNull;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Reads class files ahead on a pool of threads, while their content is consumed in order of classes.
+ * Number of class files read ahead is bounded, so that their content does not exhaust memory.
+ * Content is handed over to another thread and kept until consumed, so it can not be read into the reused buffers of {@link ClassFileReader}:
+ * each class file is read into an array of its exact size instead.
+ */
+class ParallelClassFileReader {
+
+  private final ExecutorService executor;
+  private final ClassLoader classLoader;
+  private final Iterator<String> classesToSubmit;
+  private final Deque<Future<byte[]>> results = new ArrayDeque<Future<byte[]>>();
+
+  ParallelClassFileReader(ClassLoader classLoader, int threads, Iterable<String> internalNames) {
+    this.classLoader = classLoader;
+    this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private int count = 0;
+
+      @Override
+      public synchronized Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "java-bytecode-reader-" + count++);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    this.classesToSubmit = internalNames.iterator();
+    for (int i = 0; i < 4 * threads; i++) {
+      submitNext();
+    }
+  }
+
+  private void submitNext() {
+    if (classesToSubmit.hasNext()) {
+      final String internalName = classesToSubmit.next();
+      results.add(executor.submit(new Callable<byte[]>() {
+        @Override
+        public byte[] call() {
+          return read(internalName);
+        }
+      }));
+    }
+  }
+
+  @CheckForNull
+  private byte[] read(String internalName) {
+    URL classFile = classLoader.getResource(internalName + ".class");
+    if (classFile == null) {
+      return null;
+    }
+    try {
+      return ClassFileReader.readBytes(classFile);
+    } catch (IOException e) {
+      // reported when class is read again through class loader
+      return null;
+    }
+  }
+
+  /**
+   * Returns content of next class file, in order of classes given at creation.
+   *
+   * @return null if class file can not be read
+   */
+  @CheckForNull
+  byte[] next() {
+    Future<byte[]> result = results.remove();
+    submitNext();
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    }
+  }
+
+  void stop() {
+    executor.shutdownNow();
+  }
+
+}
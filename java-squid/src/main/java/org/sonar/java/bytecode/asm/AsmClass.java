@@ -121,6 +121,19 @@ public class AsmClass extends AsmResource {
     return getImplementedInterfaces();
   }
 
+  /**
+   * Releases calls and uses of classes made by methods and fields of this class, once they are no longer needed.
+   * Structure of class, including exceptions thrown by methods, is kept, as it can still be accessed from other classes.
+   */
+  public void releaseCalls() {
+    for (AsmMethod method : methods.values()) {
+      method.retainThrows();
+    }
+    for (AsmField field : fields.values()) {
+      field.clearOutogingEdges();
+    }
+  }
+
   @Override
   public boolean equals(Object object) {
     if (this == object) {
@@ -19,13 +19,14 @@
  */
 package org.sonar.java.bytecode.asm;
 
-import org.apache.commons.io.IOUtils;
 import org.objectweb.asm.ClassReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.java.bytecode.loader.ClassFileReader;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -35,6 +36,7 @@ public class AsmClassProviderImpl extends AsmClassProvider {
 
   private final ClassLoader classLoader;
   private final Map<String, AsmClass> asmClassCache = new HashMap<String, AsmClass>();
+  private final ClassFileReader classFileReader = new ClassFileReader();
 
   public AsmClassProviderImpl() {
     this.classLoader = Thread.currentThread().getContextClassLoader();
@@ -57,6 +59,25 @@ public class AsmClassProviderImpl extends AsmClassProvider {
     return asmClass;
   }
 
+  /**
+   * Same as {@link #getClass(String, DETAIL_LEVEL)}, except that class is decorated from given content of its class file,
+   * instead of reading it through class loader.
+   */
+  public AsmClass getClass(String internalName, DETAIL_LEVEL level, @Nullable byte[] bytecode) {
+    if (bytecode == null) {
+      return getClass(internalName, level);
+    }
+    AsmClass asmClass = getAsmClassFromCacheOrCreateIt(internalName);
+    if (level.isGreaterThan(asmClass.getDetailLevel())) {
+      try {
+        new ClassReader(bytecode).accept(new AsmClassVisitor(this, asmClass, level), 0);
+      } catch (Exception e) {
+        LOG.error("Unable to process bytecode of class '" + asmClass.getInternalName() + "'", e);
+      }
+    }
+    return asmClass;
+  }
+
   private AsmClass getAsmClassFromCacheOrCreateIt(String internalName) {
     AsmClass asmClass = asmClassCache.get(internalName);
     if (asmClass == null) {
@@ -67,21 +88,20 @@ public class AsmClassProviderImpl extends AsmClassProvider {
   }
 
   private void decoracteAsmClassFromBytecode(AsmClass asmClass, DETAIL_LEVEL level) {
-    InputStream input = null;
+    URL classFile = classLoader.getResource(asmClass.getInternalName() + ".class");
+    if (classFile == null) {
+      LOG.warn("Class '" + asmClass.getInternalName() + "' is not accessible through the ClassLoader.");
+      return;
+    }
     try {
-
       AsmClassVisitor classVisitor = new AsmClassVisitor(this, asmClass, level);
-      input = classLoader.getResourceAsStream(asmClass.getInternalName() + ".class");
-      ClassReader asmReader = new ClassReader(input);
-      asmReader.accept(classVisitor, 0);
+      classFileReader.accept(classFile, classVisitor, 0);
     } catch (IOException e) {
       LOG.warn("Class '" + asmClass.getInternalName() + "' is not accessible through the ClassLoader.");
     } catch (SecurityException e) {
       LOG.warn("Class '" + asmClass.getInternalName() + "' is not accessible through the ClassLoader. One signed jar seems to be corrupted.");
     } catch (Exception e) {
       LOG.error("Unable to process bytecode of class '" + asmClass.getInternalName() + "'", e);
-    } finally {
-      IOUtils.closeQuietly(input);
     }
   }
 
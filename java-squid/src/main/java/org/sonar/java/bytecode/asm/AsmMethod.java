@@ -68,6 +68,19 @@ public class AsmMethod extends AsmResource {
     return builder.build();
   }
 
+  void retainThrows() {
+    List<AsmEdge> throwsEdges = new ArrayList<AsmEdge>();
+    for (AsmEdge edge : getOutgoingEdges()) {
+      if (edge.getUsage() == SourceCodeEdgeUsage.THROWS) {
+        throwsEdges.add(edge);
+      }
+    }
+    clearOutogingEdges();
+    for (AsmEdge edge : throwsEdges) {
+      addEdge(edge);
+    }
+  }
+
   public String getName() {
     return name;
   }
@@ -0,0 +1,136 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Reads class files into buffers, which are reused between reads instead of allocating an array for each class file.
+ * Several buffers are kept, because visit of a class might trigger read of another one.
+ * Not thread-safe.
+ */
+public class ClassFileReader {
+
+  private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+  private final Deque<Buffer> buffers = new ArrayDeque<Buffer>();
+
+  /**
+   * Reads class file and makes given visitor visit it.
+   *
+   * @param classFile location of class file, as provided by {@link ClassLoader#getResource(String)}
+   * @param flags option flags of {@link ClassReader#accept(ClassVisitor, int)}
+   */
+  public void accept(URL classFile, ClassVisitor visitor, int flags) throws IOException {
+    Buffer buffer = acquire();
+    try {
+      buffer.read(classFile);
+      new ClassReader(buffer.bytes, 0, buffer.length).accept(visitor, flags);
+    } finally {
+      buffers.push(buffer);
+    }
+  }
+
+  /**
+   * @return internal name of class defined by given class file
+   */
+  public String readClassName(URL classFile) throws IOException {
+    Buffer buffer = acquire();
+    try {
+      buffer.read(classFile);
+      return new ClassReader(buffer.bytes, 0, buffer.length).getClassName();
+    } finally {
+      buffers.push(buffer);
+    }
+  }
+
+  /**
+   * Reads class file into an array of its exact size when length of its content is known, like {@link Loader#loadBytes(String)},
+   * for content which is kept after the read, thus can not be read into a reused buffer.
+   *
+   * @throws IOException if class file is shorter than expected
+   */
+  public static byte[] readBytes(URL classFile) throws IOException {
+    URLConnection connection = classFile.openConnection();
+    int expectedLength = connection.getContentLength();
+    InputStream inputStream = connection.getInputStream();
+    try {
+      return expectedLength < 0 ? IOUtils.toByteArray(inputStream) : IOUtils.toByteArray(inputStream, expectedLength);
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
+
+  private Buffer acquire() {
+    Buffer buffer = buffers.poll();
+    return buffer == null ? new Buffer() : buffer;
+  }
+
+  private static class Buffer {
+    private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+
+    void read(URL url) throws IOException {
+      URLConnection connection = url.openConnection();
+      int expectedLength = connection.getContentLength();
+      if (expectedLength > bytes.length) {
+        bytes = new byte[expectedLength];
+      }
+      InputStream inputStream = connection.getInputStream();
+      try {
+        length = 0;
+        while (true) {
+          if (length == bytes.length) {
+            int next = inputStream.read();
+            if (next == -1) {
+              return;
+            }
+            // length of content was unknown or wrong
+            grow();
+            bytes[length++] = (byte) next;
+          }
+          int n = inputStream.read(bytes, length, bytes.length - length);
+          if (n == -1) {
+            return;
+          }
+          length += n;
+        }
+      } finally {
+        IOUtils.closeQuietly(inputStream);
+      }
+    }
+
+    private void grow() {
+      byte[] larger = new byte[bytes.length * 2];
+      System.arraycopy(bytes, 0, larger, 0, length);
+      bytes = larger;
+    }
+  }
+
+}
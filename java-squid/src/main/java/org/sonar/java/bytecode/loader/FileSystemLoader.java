@@ -27,9 +27,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 class FileSystemLoader implements Loader {
 
+  private static final String CLASS_EXTENSION = ".class";
+
   private File baseDir;
 
   public FileSystemLoader(File baseDir) {
@@ -67,7 +72,7 @@ class FileSystemLoader implements Loader {
     InputStream is = null;
     try {
       is = new FileInputStream(file);
-      return IOUtils.toByteArray(is);
+      return IOUtils.toByteArray(is, file.length());
     } catch (IOException e) {
       return null;
     } finally {
@@ -75,6 +80,35 @@ class FileSystemLoader implements Loader {
     }
   }
 
+  @Override
+  public Collection<String> classNames() {
+    if (baseDir == null) {
+      throw new IllegalStateException("Loader closed");
+    }
+    List<String> result = new ArrayList<String>();
+    collectClassNames(baseDir, "", result);
+    return result;
+  }
+
+  private static void collectClassNames(File dir, String path, List<String> result) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      String name = file.getName();
+      if (file.isDirectory()) {
+        collectClassNames(file, path + name + "/", result);
+      } else if (name.endsWith(CLASS_EXTENSION)) {
+        result.add(path + name.substring(0, name.length() - CLASS_EXTENSION.length()));
+      }
+    }
+  }
+
+  File getBaseDir() {
+    return baseDir;
+  }
+
   @Override
   public void close() {
     baseDir = null;
@@ -28,11 +28,18 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
 class JarLoader implements Loader {
 
+  private static final String CLASS_EXTENSION = ".class";
+
   private final JarFile jarFile;
   private final URL jarUrl;
 
@@ -73,7 +80,8 @@ class JarLoader implements Loader {
         return null;
       }
       is = jarFile.getInputStream(entry);
-      return IOUtils.toByteArray(is);
+      long size = entry.getSize();
+      return size < 0 ? IOUtils.toByteArray(is) : IOUtils.toByteArray(is, size);
     } catch (IOException e) {
       // TODO Godin: not sure that we should silently ignore exception here,
       // e.g. it can be thrown if file corrupted
@@ -83,6 +91,19 @@ class JarLoader implements Loader {
     }
   }
 
+  @Override
+  public Collection<String> classNames() {
+    List<String> result = new ArrayList<String>();
+    Enumeration<JarEntry> entries = jarFile.entries();
+    while (entries.hasMoreElements()) {
+      String name = entries.nextElement().getName();
+      if (name.endsWith(CLASS_EXTENSION)) {
+        result.add(name.substring(0, name.length() - CLASS_EXTENSION.length()));
+      }
+    }
+    return result;
+  }
+
   @Override
   public void close() {
     try {
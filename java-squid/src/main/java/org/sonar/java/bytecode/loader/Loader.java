@@ -20,6 +20,7 @@
 package org.sonar.java.bytecode.loader;
 
 import java.net.URL;
+import java.util.Collection;
 
 /**
  * Specifies resource loading behavior.
@@ -46,6 +47,14 @@ interface Loader {
    */
   byte[] loadBytes(String name);
 
+  /**
+   * Lists classes available from this loader.
+   *
+   * @return internal names of classes, i.e. names of class files without ".class" extension
+   * @throws IllegalStateException if loader has been closed
+   */
+  Collection<String> classNames();
+
   /**
    * Closes this loader, so that it can no longer be used to load new resources.
    * If loader is already closed, then invoking this method has no effect.
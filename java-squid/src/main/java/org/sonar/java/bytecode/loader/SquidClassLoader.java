@@ -21,20 +21,38 @@ package org.sonar.java.bytecode.loader;
 
 import com.google.common.collect.Iterators;
 
+import javax.annotation.CheckForNull;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class loader, which is able to load classes from a list of JAR files and directories.
+ * Class files are indexed once at creation, so that lookup of a class does not probe every element of the list :
+ * an instance is meant to be created once per analysis and shared by all the components reading bytecode.
  */
 public class SquidClassLoader extends ClassLoader implements Closeable {
 
+  private static final String CLASS_EXTENSION = ".class";
+
   private final List<Loader> loaders;
+  /**
+   * Loader of each class, indexed by internal name of class. When several loaders provide the same class, the first one wins.
+   */
+  private final Map<String, Loader> classIndex = new HashMap<String, Loader>();
+  /**
+   * Same as {@link #classIndex}, but restricted to directories.
+   */
+  private final Map<String, Loader> directoryClassIndex = new HashMap<String, Loader>();
+  private final Map<File, Collection<String>> directoryClassNames = new HashMap<File, Collection<String>>();
 
   /**
    * @param files ordered list of files and directories from which to load classes and resources
@@ -51,13 +69,30 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
         }
       }
     }
+    for (Loader loader : loaders) {
+      Collection<String> classNames = loader.classNames();
+      index(classIndex, classNames, loader);
+      if (loader instanceof FileSystemLoader) {
+        index(directoryClassIndex, classNames, loader);
+        directoryClassNames.put(((FileSystemLoader) loader).getBaseDir(), classNames);
+      }
+    }
+  }
+
+  private static void index(Map<String, Loader> index, Collection<String> classNames, Loader loader) {
+    for (String className : classNames) {
+      if (!index.containsKey(className)) {
+        index.put(className, loader);
+      }
+    }
   }
 
   @Override
   protected Class findClass(String name) throws ClassNotFoundException {
-    String resourceName = name.replace('.', '/') + ".class";
-    for (Loader loader : loaders) {
-      byte[] classBytes = loader.loadBytes(resourceName);
+    String className = name.replace('.', '/');
+    Loader loader = classIndex.get(className);
+    if (loader != null) {
+      byte[] classBytes = loader.loadBytes(className + CLASS_EXTENSION);
       if (classBytes != null) {
         // TODO Godin: definePackage ?
         return defineClass(name, classBytes, 0, classBytes.length);
@@ -68,6 +103,9 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
 
   @Override
   public URL findResource(String name) {
+    if (name.endsWith(CLASS_EXTENSION)) {
+      return findClassFile(classIndex, name);
+    }
     for (Loader loader : loaders) {
       URL url = loader.findResource(name);
       if (url != null) {
@@ -77,6 +115,39 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
     return null;
   }
 
+  /**
+   * Same as {@link #findResource(String)}, but only among directories, i.e. ignoring JAR files.
+   */
+  @CheckForNull
+  public URL findResourceInDirectories(String name) {
+    if (name.endsWith(CLASS_EXTENSION)) {
+      return findClassFile(directoryClassIndex, name);
+    }
+    for (Loader loader : loaders) {
+      if (loader instanceof FileSystemLoader) {
+        URL url = loader.findResource(name);
+        if (url != null) {
+          return url;
+        }
+      }
+    }
+    return null;
+  }
+
+  @CheckForNull
+  private static URL findClassFile(Map<String, Loader> index, String name) {
+    Loader loader = index.get(name.substring(0, name.length() - CLASS_EXTENSION.length()));
+    return loader == null ? null : loader.findResource(name);
+  }
+
+  /**
+   * @return internal names of classes found in given directory, or empty collection if directory is not part of this class loader
+   */
+  public Collection<String> getClassNames(File directory) {
+    Collection<String> result = directoryClassNames.get(directory);
+    return result == null ? Collections.<String>emptyList() : Collections.unmodifiableCollection(result);
+  }
+
   @Override
   protected Enumeration<URL> findResources(String name) throws IOException {
     List<URL> result = new ArrayList<URL>();
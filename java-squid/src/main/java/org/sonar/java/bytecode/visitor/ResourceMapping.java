@@ -22,6 +22,7 @@ package org.sonar.java.bytecode.visitor;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 import org.sonar.api.design.Dependency;
 import org.sonar.api.resources.Directory;
@@ -42,7 +43,8 @@ public class ResourceMapping {
 
   public ResourceMapping() {
     directories = ArrayListMultimap.create();
-    subDependencies = ArrayListMultimap.create();
+    // sub-dependencies are hashed, so that adding an edge already known does not scan those of its parent
+    subDependencies = LinkedHashMultimap.create();
     fileKeyByResource = new HashMap<File, String>();
   }
 
@@ -69,8 +71,11 @@ public class ResourceMapping {
     return ImmutableSet.<Resource>builder().addAll(directories.get(directory)).build();
   }
 
-  public void addSubDependency(Dependency parent, Dependency subDependency) {
-    subDependencies.put(parent, subDependency);
+  /**
+   * @return false if the sub-dependency was already known
+   */
+  public boolean addSubDependency(Dependency parent, Dependency subDependency) {
+    return subDependencies.put(parent, subDependency);
   }
 
   public Collection<Dependency> getSubDependencies(Dependency parent) {
@@ -20,14 +20,11 @@
 package org.sonar.java.filters;
 
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.issue.batch.IssueFilter;
 import org.sonar.api.issue.batch.IssueFilterChain;
 import org.sonar.api.rule.RuleKey;
 
-import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -41,42 +38,24 @@ import java.util.Map;
  */
 public class SuppressWarningsFilter implements IssueFilter {
 
-  private final Map<String, Multimap<Integer, String>> suppressWarningsLinesByResource = Maps.newHashMap();
+  private final Map<String, SuppressWarningsIndex> suppressWarningsByResource = Maps.newHashMap();
 
-  public void addComponent(String componentKey, Multimap<Integer, String> warningLines) {
-    suppressWarningsLinesByResource.put(componentKey, warningLines);
+  public void addComponent(String componentKey, SuppressWarningsIndex suppressWarnings) {
+    suppressWarningsByResource.put(componentKey, suppressWarnings);
   }
 
   @Override
   public boolean accept(Issue issue, IssueFilterChain chain) {
-    for (String warning : getWarningsByLine(issue)) {
-      if (issueShouldNotBeReported(warning, issue)) {
-        return false;
-      }
+    if (issueShouldNotBeReported(issue)) {
+      return false;
     }
     return chain.accept(issue);
   }
 
-  private Collection<String> getWarningsByLine(Issue issue) {
+  private boolean issueShouldNotBeReported(Issue issue) {
     Integer line = issue.line();
-    String componentKey = issue.componentKey();
-    if (line != null && suppressWarningsLinesByResource.containsKey(componentKey)) {
-      return suppressWarningsLinesByResource.get(componentKey).get(line);
-    }
-    return Sets.newTreeSet();
-  }
-
-  private boolean issueShouldNotBeReported(String warning, Issue issue) {
-    RuleKey ruleKey = issue.ruleKey();
-    return (warningIsRuleKey(warning, ruleKey) || "all".equals(warning)) && !isSuppressWarningRule(ruleKey);
-  }
-
-  private boolean warningIsRuleKey(String warning, RuleKey ruleKey) {
-    try {
-      return ruleKey.equals(RuleKey.parse(warning));
-    } catch (IllegalArgumentException e) {
-      return false;
-    }
+    SuppressWarningsIndex suppressWarnings = suppressWarningsByResource.get(issue.componentKey());
+    return line != null && suppressWarnings != null && !isSuppressWarningRule(issue.ruleKey()) && suppressWarnings.isSuppressed(issue.ruleKey(), line);
   }
 
   private boolean isSuppressWarningRule(RuleKey ruleKey) {
@@ -0,0 +1,152 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.filters;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.sonar.api.rule.RuleKey;
+
+import javax.annotation.CheckForNull;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Warnings suppressed in a file, as line intervals covered by a <code>@SuppressWarnings</code> annotation.
+ */
+public class SuppressWarningsIndex {
+
+  private static final String ALL = "all";
+
+  private final List<Interval> intervals = Lists.newArrayList();
+  /**
+   * Greatest end line of intervals up to each index of the sorted intervals, to stop looking for intervals containing a line.
+   */
+  private int[] maxEndLines;
+
+  /**
+   * @param warnings values of the annotation, either rule keys or <code>all</code>
+   */
+  public void add(int startLine, int endLine, Collection<String> warnings) {
+    if (!warnings.isEmpty() && startLine <= endLine) {
+      intervals.add(new Interval(startLine, endLine, warnings));
+      maxEndLines = null;
+    }
+  }
+
+  public boolean isEmpty() {
+    return intervals.isEmpty();
+  }
+
+  public boolean isSuppressed(RuleKey ruleKey, int line) {
+    sort();
+    for (int i = lastStartingAtOrBefore(line); i >= 0 && maxEndLines[i] >= line; i--) {
+      Interval interval = intervals.get(i);
+      if (interval.endLine >= line && (interval.all || interval.ruleKeys.contains(ruleKey))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Warnings as written in the annotations covering the given line.
+   */
+  public Set<String> getWarnings(int line) {
+    sort();
+    Set<String> result = Sets.newHashSet();
+    for (int i = lastStartingAtOrBefore(line); i >= 0 && maxEndLines[i] >= line; i--) {
+      Interval interval = intervals.get(i);
+      if (interval.endLine >= line) {
+        result.addAll(interval.warnings);
+      }
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  private void sort() {
+    if (maxEndLines == null) {
+      Collections.sort(intervals, new Comparator<Interval>() {
+        @Override
+        public int compare(Interval interval1, Interval interval2) {
+          return interval1.startLine - interval2.startLine;
+        }
+      });
+      maxEndLines = new int[intervals.size()];
+      int maxEndLine = Integer.MIN_VALUE;
+      for (int i = 0; i < maxEndLines.length; i++) {
+        maxEndLine = Math.max(maxEndLine, intervals.get(i).endLine);
+        maxEndLines[i] = maxEndLine;
+      }
+    }
+  }
+
+  private int lastStartingAtOrBefore(int line) {
+    int low = 0;
+    int high = intervals.size() - 1;
+    int result = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (intervals.get(middle).startLine <= line) {
+        result = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return result;
+  }
+
+  private static class Interval {
+    private final int startLine;
+    private final int endLine;
+    private final Set<String> warnings;
+    private final boolean all;
+    private final Set<RuleKey> ruleKeys;
+
+    Interval(int startLine, int endLine, Collection<String> warnings) {
+      this.startLine = startLine;
+      this.endLine = endLine;
+      this.warnings = ImmutableSet.copyOf(warnings);
+      this.all = this.warnings.contains(ALL);
+      ImmutableSet.Builder<RuleKey> builder = ImmutableSet.builder();
+      for (String warning : this.warnings) {
+        RuleKey ruleKey = parse(warning);
+        if (ruleKey != null) {
+          builder.add(ruleKey);
+        }
+      }
+      this.ruleKeys = builder.build();
+    }
+
+    @CheckForNull
+    private static RuleKey parse(String warning) {
+      try {
+        return RuleKey.parse(warning);
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+  }
+
+}
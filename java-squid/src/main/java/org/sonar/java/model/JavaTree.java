@@ -62,6 +62,8 @@ public abstract class JavaTree extends AstNode implements Tree {
 
   private final AstNode astNode;
 
+  private int nodeId = -1;
+
   public JavaTree(AstNodeType type) {
     super(type, type.toString(), null);
     this.astNode = this;
@@ -84,6 +86,17 @@ public abstract class JavaTree extends AstNode implements Tree {
     return astNode != this;
   }
 
+  /**
+   * Index of this node in the semantic model of its compilation unit, or -1 when not indexed.
+   */
+  public int getNodeId() {
+    return nodeId;
+  }
+
+  public void setNodeId(int nodeId) {
+    this.nodeId = nodeId;
+  }
+
   private void prependChild(AstNode astNode) {
     Preconditions.checkState(getAstNode() == this, "Legacy strongly typed node");
 
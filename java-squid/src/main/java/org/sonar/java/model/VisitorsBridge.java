@@ -23,31 +23,46 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.sonar.sslr.api.AstNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.component.Component;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.api.source.Symbol;
+import org.sonar.api.source.Symbolizable;
 import org.sonar.java.CharsetAwareVisitor;
+import org.sonar.java.ExecutionTimeReport;
+import org.sonar.java.IncrementalCache;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.ast.visitors.ComplexityVisitor;
 import org.sonar.java.ast.visitors.SonarSymbolTableVisitor;
+import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.ast.visitors.SubscriptionVisitorsDispatcher;
+import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.resolve.ProjectSymbolTable;
 import org.sonar.java.resolve.SemanticModel;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.squidbridge.SquidAstVisitor;
 import org.sonar.squidbridge.api.CheckMessage;
 import org.sonar.squidbridge.api.SourceFile;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -56,10 +71,23 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
   private static final Logger LOG = LoggerFactory.getLogger(VisitorsBridge.class);
 
   private final List<JavaFileScanner> scanners;
+  /**
+   * Visitor given to the dispatcher for each scanner relying on traversal of {@link SubscriptionVisitor}.
+   */
+  private final Map<JavaFileScanner, SubscriptionVisitor> dispatchedScanners = Maps.newIdentityHashMap();
+  private final Map<JavaFileScanner, ExecutionTimeReport.Timer> scannerTimers = Maps.newIdentityHashMap();
+  private SubscriptionVisitorsDispatcher dispatcher;
   private final SonarComponents sonarComponents;
   private SemanticModel semanticModel;
   private List<File> projectClasspath;
+  private ProjectSymbolTable projectSymbolTable;
   private boolean analyseAccessors;
+  @Nullable
+  private IncrementalCache incrementalCache;
+  @Nullable
+  private ExecutionTimeReport.Timer semanticModelTimer;
+  @Nullable
+  private ExecutionTimeReport.Timer symbolTableTimer;
 
   @VisibleForTesting
   public VisitorsBridge(JavaFileScanner visitor) {
@@ -80,6 +108,7 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
       }
     }
     this.scanners = scannersBuilder.build();
+    createDispatcher(null);
     this.sonarComponents = sonarComponents;
     if (sonarComponents != null) {
       projectClasspath = sonarComponents.getJavaClasspath();
@@ -92,6 +121,43 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
     this.analyseAccessors = analyseAccessors;
   }
 
+  public void setIncrementalCache(@Nullable IncrementalCache incrementalCache) {
+    this.incrementalCache = incrementalCache;
+  }
+
+  /**
+   * @param executionTimeReport report where times of semantic analysis and of each scanner are accumulated, or null to not measure them
+   */
+  public void setExecutionTimeReport(@Nullable ExecutionTimeReport executionTimeReport) {
+    createDispatcher(executionTimeReport);
+    if (executionTimeReport == null) {
+      semanticModelTimer = null;
+      symbolTableTimer = null;
+    } else {
+      semanticModelTimer = executionTimeReport.timer(ExecutionTimeReport.PHASE, "Semantic model");
+      symbolTableTimer = executionTimeReport.timer(ExecutionTimeReport.PHASE, "Symbol table");
+    }
+  }
+
+  private void createDispatcher(@Nullable ExecutionTimeReport executionTimeReport) {
+    dispatchedScanners.clear();
+    scannerTimers.clear();
+    List<SubscriptionVisitor> dispatchedVisitors = Lists.newArrayList();
+    for (JavaFileScanner scanner : scanners) {
+      ExecutionTimeReport.Timer timer = null;
+      if (executionTimeReport != null) {
+        timer = executionTimeReport.timer(ExecutionTimeReport.JAVA_FILE_SCANNER, scanner);
+        scannerTimers.put(scanner, timer);
+      }
+      if (SubscriptionVisitorsDispatcher.canDispatch(scanner)) {
+        SubscriptionVisitor visitor = timer == null ? (SubscriptionVisitor) scanner : new TimedSubscriptionVisitor((SubscriptionVisitor) scanner, timer);
+        dispatchedVisitors.add(visitor);
+        dispatchedScanners.put(scanner, visitor);
+      }
+    }
+    dispatcher = new SubscriptionVisitorsDispatcher(dispatchedVisitors);
+  }
+
   @Override
   public void setCharset(Charset charset) {
     for (JavaFileScanner scanner : scanners) {
@@ -106,28 +172,139 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
     semanticModel = null;
     if (astNode != null) {
       CompilationUnitTree tree = (CompilationUnitTree) astNode;
+      SourceFile sourceFile = (SourceFile) getContext().peekSourceCode();
+      IncrementalCache.FileResults fileResults = null;
+      if (incrementalCache != null) {
+        String contentHash = IncrementalCache.hash(((VisitorContext) getContext()).getFileContent().getContent());
+        IncrementalCache.FileResults cachedResults = incrementalCache.get(sourceFile.getKey(), contentHash);
+        if (cachedResults != null && replay(cachedResults, tree, sourceFile)) {
+          incrementalCache.put(sourceFile.getKey(), cachedResults);
+          return;
+        }
+        fileResults = new IncrementalCache.FileResults(contentHash);
+      }
       if (isNotJavaLangOrSerializable()) {
+        start(semanticModelTimer);
         try {
-          semanticModel = SemanticModel.createFor(tree, getProjectClasspath());
+          semanticModel = SemanticModel.createFor(tree, getProjectSymbolTable());
         } catch (Exception e) {
           LOG.error("Unable to create symbol table for : " + getContext().getFile().getAbsolutePath(), e);
           return;
+        } finally {
+          stop(semanticModelTimer);
+        }
+        start(symbolTableTimer);
+        try {
+          createSonarSymbolTable(tree, fileResults);
+        } finally {
+          stop(symbolTableTimer);
         }
-        createSonarSymbolTable(tree);
       } else {
-        SemanticModel.handleMissingTypes(tree);
+        SemanticModel.handleMissingTypes(getProjectSymbolTable(), tree);
       }
-      JavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, (SourceFile) getContext().peekSourceCode(), getContext().getFile(), semanticModel, analyseAccessors);
+      JavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, sourceFile, getContext().getFile(), semanticModel, analyseAccessors, null);
+      JavaFileScannerContext recordingContext = fileResults == null ? context :
+        new DefaultJavaFileScannerContext(tree, sourceFile, getContext().getFile(), semanticModel, analyseAccessors, fileResults);
+      // visitors relying on traversal of SubscriptionVisitor share a single walk of the tree, performed once others are executed
       for (JavaFileScanner scanner : scanners) {
-        scanner.scanFile(context);
+        JavaFileScannerContext scannerContext = isCached(scanner) ? recordingContext : context;
+        SubscriptionVisitor dispatchedVisitor = dispatchedScanners.get(scanner);
+        if (dispatchedVisitor != null) {
+          dispatchedVisitor.setContext(scannerContext);
+        } else {
+          scanFile(scanner, scannerContext);
+        }
       }
-      if (semanticModel != null) {
-        // Close class loader after all the checks.
-        semanticModel.done();
+      dispatcher.scan(tree);
+      if (fileResults != null) {
+        incrementalCache.put(sourceFile.getKey(), fileResults);
       }
     }
   }
 
+  private void scanFile(JavaFileScanner scanner, JavaFileScannerContext context) {
+    ExecutionTimeReport.Timer timer = scannerTimers.get(scanner);
+    start(timer);
+    try {
+      scanner.scanFile(context);
+    } finally {
+      stop(timer);
+    }
+  }
+
+  private static void start(@Nullable ExecutionTimeReport.Timer timer) {
+    if (timer != null) {
+      timer.start();
+    }
+  }
+
+  private static void stop(@Nullable ExecutionTimeReport.Timer timer) {
+    if (timer != null) {
+      timer.stop();
+    }
+  }
+
+  private boolean isCached(JavaFileScanner scanner) {
+    return incrementalCache != null && incrementalCache.isCached(scanner);
+  }
+
+  /**
+   * Reports results of cached scanners computed by previous analysis, and executes only other scanners, without semantic model.
+   *
+   * @return false if results can not be replayed, because one of checks which reported them is no longer executed
+   */
+  private boolean replay(IncrementalCache.FileResults fileResults, CompilationUnitTree tree, SourceFile sourceFile) {
+    List<CheckMessage> checkMessages = Lists.newArrayList();
+    for (IncrementalCache.Issue issue : fileResults.getIssues()) {
+      Object check = issue.isRuleKey() ? RuleKey.parse(issue.getCheckId()) : findScanner(issue.getCheckId());
+      if (check == null) {
+        return false;
+      }
+      checkMessages.add(issue.toCheckMessage(check));
+    }
+    for (CheckMessage checkMessage : checkMessages) {
+      sourceFile.log(checkMessage);
+    }
+    sourceFile.addNoSonarTagLines(fileResults.getNoSonarLines());
+    if (sonarComponents != null && !fileResults.getSymbols().isEmpty()) {
+      Symbolizable symbolizable = sonarComponents.symbolizableFor(getContext().getFile());
+      Symbolizable.SymbolTableBuilder symbolTableBuilder = symbolizable.newSymbolTableBuilder();
+      for (int[] offsets : fileResults.getSymbols()) {
+        Symbol symbol = symbolTableBuilder.newSymbol(offsets[0], offsets[1]);
+        for (int i = 2; i < offsets.length; i++) {
+          symbolTableBuilder.newReference(symbol, offsets[i]);
+        }
+      }
+      symbolizable.setSymbolTable(symbolTableBuilder.build());
+    }
+    JavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, sourceFile, getContext().getFile(), null, analyseAccessors, null);
+    for (JavaFileScanner scanner : scanners) {
+      if (!isCached(scanner)) {
+        scanFile(scanner, context);
+      }
+    }
+    return true;
+  }
+
+  @CheckForNull
+  private JavaFileScanner findScanner(String className) {
+    for (JavaFileScanner scanner : scanners) {
+      if (scanner.getClass().getName().equals(className)) {
+        return scanner;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void destroy() {
+    if (projectSymbolTable != null) {
+      // Close class loader once all the files are analyzed, unless it is shared with other components.
+      projectSymbolTable.done();
+      projectSymbolTable = null;
+    }
+  }
+
   private boolean isNotJavaLangOrSerializable() {
     String[] path = getContext().peekSourceCode().getName().split(Pattern.quote(File.separator));
     boolean isJavaLang = path.length > 3 && "java".equals(path[path.length - 3]) && "lang".equals(path[path.length - 2]);
@@ -137,30 +314,155 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
     return !(isJavaLang || isJavaLangAnnotation || isSerializable);
   }
 
-  private List<File> getProjectClasspath() {
-    return projectClasspath;
+  private ProjectSymbolTable getProjectSymbolTable() {
+    if (projectSymbolTable == null) {
+      SquidClassLoader classLoader = sonarComponents == null ? null : sonarComponents.getJavaClassLoader();
+      projectSymbolTable = classLoader == null ? new ProjectSymbolTable(projectClasspath) : new ProjectSymbolTable(classLoader);
+    }
+    return projectSymbolTable;
   }
 
-  private void createSonarSymbolTable(CompilationUnitTree tree) {
+  private void createSonarSymbolTable(CompilationUnitTree tree, @Nullable IncrementalCache.FileResults fileResults) {
     if (sonarComponents != null) {
-      SonarSymbolTableVisitor symVisitor = new SonarSymbolTableVisitor(sonarComponents.symbolizableFor(getContext().getFile()), semanticModel);
+      Symbolizable symbolizable = sonarComponents.symbolizableFor(getContext().getFile());
+      if (fileResults != null) {
+        symbolizable = new RecordingSymbolizable(symbolizable, fileResults);
+      }
+      SonarSymbolTableVisitor symVisitor = new SonarSymbolTableVisitor(symbolizable, semanticModel);
       symVisitor.visitCompilationUnit(tree);
     }
   }
 
+  /**
+   * Records symbol table into results of file, so that it can be replayed by next analysis.
+   */
+  private static class RecordingSymbolizable implements Symbolizable {
+    private final Symbolizable symbolizable;
+    private final IncrementalCache.FileResults fileResults;
+
+    RecordingSymbolizable(Symbolizable symbolizable, IncrementalCache.FileResults fileResults) {
+      this.symbolizable = symbolizable;
+      this.fileResults = fileResults;
+    }
+
+    @Override
+    public SymbolTableBuilder newSymbolTableBuilder() {
+      return symbolizable.newSymbolTableBuilder();
+    }
+
+    @Override
+    public void setSymbolTable(SymbolTable symbolTable) {
+      for (Symbol symbol : symbolTable.symbols()) {
+        List<Integer> references = symbolTable.references(symbol);
+        int[] offsets = new int[2 + references.size()];
+        offsets[0] = symbol.getDeclarationStartOffset();
+        offsets[1] = symbol.getDeclarationEndOffset();
+        for (int i = 0; i < references.size(); i++) {
+          offsets[2 + i] = references.get(i);
+        }
+        fileResults.addSymbol(offsets);
+      }
+      symbolizable.setSymbolTable(symbolTable);
+    }
+
+    @Override
+    public Component component() {
+      return symbolizable.component();
+    }
+  }
+
+  /**
+   * Measures time spent by a visitor, which is dispatched through this one.
+   */
+  private static class TimedSubscriptionVisitor extends SubscriptionVisitor {
+    private final SubscriptionVisitor visitor;
+    private final ExecutionTimeReport.Timer timer;
+
+    TimedSubscriptionVisitor(SubscriptionVisitor visitor, ExecutionTimeReport.Timer timer) {
+      this.visitor = visitor;
+      this.timer = timer;
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return visitor.nodesToVisit();
+    }
+
+    @Override
+    public void setContext(JavaFileScannerContext context) {
+      timer.start();
+      try {
+        visitor.setContext(context);
+      } finally {
+        timer.stop();
+      }
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      timer.start();
+      try {
+        visitor.visitNode(tree);
+      } finally {
+        timer.stop();
+      }
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+      timer.start();
+      try {
+        visitor.leaveNode(tree);
+      } finally {
+        timer.stop();
+      }
+    }
+
+    @Override
+    public void visitToken(SyntaxToken syntaxToken) {
+      timer.start();
+      try {
+        visitor.visitToken(syntaxToken);
+      } finally {
+        timer.stop();
+      }
+    }
+
+    @Override
+    public void visitTrivia(SyntaxTrivia syntaxTrivia) {
+      timer.start();
+      try {
+        visitor.visitTrivia(syntaxTrivia);
+      } finally {
+        timer.stop();
+      }
+    }
+  }
+
   private static class DefaultJavaFileScannerContext implements JavaFileScannerContext {
     private final CompilationUnitTree tree;
     private final SourceFile sourceFile;
     private final SemanticModel semanticModel;
     private final ComplexityVisitor complexityVisitor;
     private final File file;
+    @Nullable
+    private final IncrementalCache.FileResults fileResults;
 
-    public DefaultJavaFileScannerContext(CompilationUnitTree tree, SourceFile sourceFile, File file, SemanticModel semanticModel, boolean analyseAccessors) {
+    public DefaultJavaFileScannerContext(CompilationUnitTree tree, SourceFile sourceFile, File file, @Nullable SemanticModel semanticModel, boolean analyseAccessors,
+      @Nullable IncrementalCache.FileResults fileResults) {
       this.tree = tree;
       this.sourceFile = sourceFile;
       this.file = file;
       this.semanticModel = semanticModel;
       this.complexityVisitor = new ComplexityVisitor(analyseAccessors);
+      this.fileResults = fileResults;
+    }
+
+    private void log(CheckMessage checkMessage) {
+      sourceFile.log(checkMessage);
+      if (fileResults != null) {
+        fileResults.addIssue(checkMessage);
+      }
     }
 
     @Override
@@ -187,13 +489,13 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
         checkMessage.setLine(line);
       }
       checkMessage.setBypassExclusion("NoSonar".equals(ruleKey.rule()));
-      sourceFile.log(checkMessage);
+      log(checkMessage);
     }
 
     @Override
     public void addIssue(Tree tree, CheckMessage checkMessage) {
       checkMessage.setLine(((JavaTree) tree).getLine());
-      sourceFile.log(checkMessage);
+      log(checkMessage);
     }
 
     @Override
@@ -225,6 +527,9 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
     @Override
     public void addNoSonarLines(Set<Integer> lines) {
       sourceFile.addNoSonarTagLines(lines);
+      if (fileResults != null) {
+        fileResults.addNoSonarLines(lines);
+      }
     }
 
   }
@@ -52,6 +52,7 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.ArrayDeque;
 import java.util.Deque;
@@ -63,51 +64,70 @@ public class ActionParser2 extends Parser {
   private final Charset charset;
 
   private final AstNodeSanitizer astNodeSanitzer = new AstNodeSanitizer();
-  private final GrammarBuilderInterceptor grammarBuilderInterceptor;
   private final SyntaxTreeCreator<AstNode> syntaxTreeCreator;
-  private final GrammarRuleKey rootRule;
-  private final Grammar grammar;
-  private final ParseRunner parseRunner;
+  private final ActionGrammar actionGrammar;
 
   public ActionParser2(Charset charset, LexerlessGrammarBuilder b, Class grammarClass, Object treeFactory, GrammarRuleKey rootRule) {
+    this(charset, new ActionGrammar(b, grammarClass, treeFactory, rootRule));
+  }
+
+  public ActionParser2(Charset charset, ActionGrammar actionGrammar) {
     super(null);
 
     this.charset = charset;
+    this.actionGrammar = actionGrammar;
+    this.syntaxTreeCreator = new SyntaxTreeCreator<AstNode>(actionGrammar.treeFactory, actionGrammar.grammarBuilderInterceptor);
+  }
 
-    this.grammarBuilderInterceptor = new GrammarBuilderInterceptor(b);
-    Enhancer grammarEnhancer = new Enhancer();
-    grammarEnhancer.setSuperclass(grammarClass);
-    grammarEnhancer.setCallback(grammarBuilderInterceptor);
-
-    ActionMethodInterceptor actionMethodInterceptor = new ActionMethodInterceptor(grammarBuilderInterceptor);
-    Enhancer actionEnhancer = new Enhancer();
-    actionEnhancer.setSuperclass(treeFactory.getClass());
-    actionEnhancer.setCallback(actionMethodInterceptor);
-
-    Object grammar = grammarEnhancer.create(
-      new Class[] {GrammarBuilder.class, treeFactory.getClass()},
-      new Object[] {grammarBuilderInterceptor, actionEnhancer.create()});
+  /**
+   * Grammar built from grammar class and tree factory, along with mapping of its rules to actions.
+   * Building it is costly, whereas its rules are not modified by parsing: it can be shared by parsers of a same thread, as long as
+   * tree factory does not hold any state. Matching of regular expressions is not thread-safe, so each thread needs its own grammar.
+   */
+  public static class ActionGrammar {
 
-    for (Method method : grammarClass.getMethods()) {
-      if (method.getDeclaringClass().equals(Object.class)) {
-        continue;
+    private final Object treeFactory;
+    private final GrammarBuilderInterceptor grammarBuilderInterceptor;
+    private final GrammarRuleKey rootRule;
+    private final Grammar grammar;
+    private final ParseRunner parseRunner;
+
+    public ActionGrammar(LexerlessGrammarBuilder b, Class grammarClass, Object treeFactory, GrammarRuleKey rootRule) {
+      this.treeFactory = treeFactory;
+      this.grammarBuilderInterceptor = new GrammarBuilderInterceptor(b);
+      Enhancer grammarEnhancer = new Enhancer();
+      grammarEnhancer.setSuperclass(grammarClass);
+      grammarEnhancer.setCallback(grammarBuilderInterceptor);
+
+      ActionMethodInterceptor actionMethodInterceptor = new ActionMethodInterceptor(grammarBuilderInterceptor);
+      Enhancer actionEnhancer = new Enhancer();
+      actionEnhancer.setSuperclass(treeFactory.getClass());
+      actionEnhancer.setCallback(actionMethodInterceptor);
+
+      Object grammar = grammarEnhancer.create(
+        new Class[] {GrammarBuilder.class, treeFactory.getClass()},
+        new Object[] {grammarBuilderInterceptor, actionEnhancer.create()});
+
+      for (Method method : grammarClass.getMethods()) {
+        if (method.getDeclaringClass().equals(Object.class)) {
+          continue;
+        }
+
+        try {
+          method.invoke(grammar);
+        } catch (InvocationTargetException e) {
+          throw Throwables.propagate(e);
+        } catch (IllegalAccessException e) {
+          throw Throwables.propagate(e);
+        }
       }
 
-      try {
-        method.invoke(grammar);
-      } catch (InvocationTargetException e) {
-        throw Throwables.propagate(e);
-      } catch (IllegalAccessException e) {
-        throw Throwables.propagate(e);
-      }
+      b.setRootRule(rootRule);
+      this.rootRule = rootRule;
+      this.grammar = b.build();
+      this.parseRunner = new ParseRunner(this.grammar.getRootRule());
     }
 
-    this.syntaxTreeCreator = new SyntaxTreeCreator<AstNode>(treeFactory, grammarBuilderInterceptor);
-
-    b.setRootRule(rootRule);
-    this.rootRule = rootRule;
-    this.grammar = b.build();
-    this.parseRunner = new ParseRunner(this.grammar.getRootRule());
   }
 
   @Override
@@ -118,7 +138,7 @@ public class ActionParser2 extends Parser {
   @Override
   public AstNode parse(File file) {
     try {
-      return parse(new Input(Files.toString(file, charset).toCharArray(), file.toURI()));
+      return parse(Files.toString(file, charset), file.toURI());
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
@@ -129,8 +149,15 @@ public class ActionParser2 extends Parser {
     return parse(new Input(source.toCharArray()));
   }
 
+  /**
+   * Parses content of a file which was already read, tokens being located in this file.
+   */
+  public AstNode parse(String source, URI uri) {
+    return parse(new Input(source.toCharArray(), uri));
+  }
+
   private AstNode parse(Input input) {
-    ParsingResult result = parseRunner.parse(input.input());
+    ParsingResult result = actionGrammar.parseRunner.parse(input.input());
 
     if (!result.isMatched()) {
       ParseError parseError = result.getParseError();
@@ -147,7 +174,7 @@ public class ActionParser2 extends Parser {
 
   @Override
   public Grammar getGrammar() {
-    return grammar;
+    return actionGrammar.grammar;
   }
 
   @Override
@@ -161,7 +188,7 @@ public class ActionParser2 extends Parser {
   }
 
   public GrammarRuleKey rootRule() {
-    return rootRule;
+    return actionGrammar.rootRule;
   }
 
   public static class GrammarBuilderInterceptor implements MethodInterceptor, GrammarBuilder, NonterminalBuilder {
@@ -29,14 +29,18 @@ import org.objectweb.asm.ClassReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.ClassFileReader;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 
-import java.io.Closeable;
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URL;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class BytecodeCompleter implements Symbol.Completer {
 
@@ -48,20 +52,41 @@ public class BytecodeCompleter implements Symbol.Completer {
       Flags.ABSTRACT | Flags.STRICTFP | Flags.DEPRECATED;
 
   private Symbols symbols;
+  @Nullable
   private final List<File> projectClasspath;
   private final ParametrizedTypeCache parametrizedTypeCache;
+  @Nullable
+  private final BytecodeCompleter parent;
 
   /**
    * Indexed by flat name.
    */
   private final Map<String, Symbol.TypeSymbol> classes = new HashMap<String, Symbol.TypeSymbol>();
   private final Map<String, Symbol.PackageSymbol> packages = new HashMap<String, Symbol.PackageSymbol>();
+  /**
+   * Classes which were not found, so that lookups through star imports, which mostly miss, do not probe the classpath again.
+   */
+  private final Set<String> missingClasses = new HashSet<String>();
 
-  private ClassLoader classLoader;
+  private SquidClassLoader classLoader;
+  private final ClassFileReader classFileReader = new ClassFileReader();
 
   public BytecodeCompleter(List<File> projectClasspath, ParametrizedTypeCache parametrizedTypeCache) {
     this.projectClasspath = projectClasspath;
     this.parametrizedTypeCache = parametrizedTypeCache;
+    this.parent = null;
+  }
+
+  /**
+   * Reads classes from a class loader shared with other components, thus not closed by {@link #done()}.
+   * If parent is provided, only classes of directories are read by this completer and other classes are requested to parent completer, which owns symbols of packages.
+   * This allows to share symbols of parent between several completers, while symbols created by this one remain private to it.
+   */
+  public BytecodeCompleter(SquidClassLoader classLoader, ParametrizedTypeCache parametrizedTypeCache, @Nullable BytecodeCompleter parent) {
+    this.projectClasspath = null;
+    this.classLoader = classLoader;
+    this.parametrizedTypeCache = parametrizedTypeCache;
+    this.parent = parent;
   }
 
   public void init(Symbols symbols) {
@@ -86,28 +111,36 @@ public class BytecodeCompleter implements Symbol.Completer {
     Symbol.TypeSymbol classSymbol = getClassSymbol(bytecodeName);
     Preconditions.checkState(classSymbol == symbol);
 
-    InputStream inputStream = null;
-    ClassReader classReader = null;
-    try {
-      inputStream = inputStreamFor(bytecodeName);
-      classReader = new ClassReader(inputStream);
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    } finally {
-      Closeables.closeQuietly(inputStream);
-    }
-    if (classReader != null) {
-      classReader.accept(
-          new BytecodeVisitor(this, symbols, (Symbol.TypeSymbol) symbol, parametrizedTypeCache),
-          ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
+    URL classFile = findClassFile(bytecodeName);
+    if (classFile != null) {
+      try {
+        getClassFileReader().accept(
+            classFile,
+            new BytecodeVisitor(this, symbols, (Symbol.TypeSymbol) symbol, parametrizedTypeCache),
+            ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
     }
   }
 
-  private InputStream inputStreamFor(String fullname) {
-    return getClassLoader().getResourceAsStream(Convert.bytecodeName(fullname) + ".class");
+  /**
+   * Buffers of reader are shared with children completers.
+   */
+  private ClassFileReader getClassFileReader() {
+    return parent == null ? classFileReader : parent.getClassFileReader();
   }
 
-  private ClassLoader getClassLoader() {
+  /**
+   * Classes of JDK and JAR files are resolved only by completer without parent.
+   */
+  @Nullable
+  private URL findClassFile(String fullname) {
+    String resourceName = Convert.bytecodeName(fullname) + ".class";
+    return parent == null ? getClassLoader().getResource(resourceName) : getClassLoader().findResourceInDirectories(resourceName);
+  }
+
+  private SquidClassLoader getClassLoader() {
     if (classLoader == null) {
       classLoader = ClassLoaderBuilder.create(projectClasspath);
     }
@@ -142,6 +175,9 @@ public class BytecodeCompleter implements Symbol.Completer {
   Symbol.TypeSymbol getClassSymbol(String bytecodeName, int flags) {
     String flatName = Convert.flatName(bytecodeName);
     Symbol.TypeSymbol symbol = classes.get(flatName);
+    if (symbol == null && isReadByParent(flatName)) {
+      return parent.getClassSymbol(bytecodeName, flags);
+    }
     if (symbol == null) {
       String shortName = Convert.shortName(flatName);
       String packageName = Convert.packagePart(flatName);
@@ -156,7 +192,7 @@ public class BytecodeCompleter implements Symbol.Completer {
       symbol.typeParameters = new Scope(symbol);
 
       // (Godin): IOException will happen without this condition in case of missing class:
-      if (getClassLoader().getResource(Convert.bytecodeName(flatName) + ".class") != null) {
+      if (findClassFile(flatName) != null) {
         symbol.completer = this;
       } else {
         LOG.error("Class not found: " + bytecodeName);
@@ -169,6 +205,17 @@ public class BytecodeCompleter implements Symbol.Completer {
     return symbol;
   }
 
+  /**
+   * Inner classes are read by the completer of their outer class, even if missing, so that they have the same owner.
+   */
+  private boolean isReadByParent(String flatName) {
+    if (parent == null || findClassFile(flatName) != null) {
+      return false;
+    }
+    String enclosingClassName = Convert.enclosingClassName(Convert.shortName(flatName));
+    return StringUtils.isEmpty(enclosingClassName) || isReadByParent(Convert.fullName(Convert.packagePart(flatName), enclosingClassName));
+  }
+
   public int filterBytecodeFlags(int flags) {
     return flags & ACCEPTABLE_BYTECODE_FLAGS;
   }
@@ -186,31 +233,36 @@ public class BytecodeCompleter implements Symbol.Completer {
     if (symbol != null) {
       return symbol;
     }
-
-    // TODO(Godin): pull out conversion of name from the next method to avoid unnecessary conversion afterwards:
-    InputStream inputStream = inputStreamFor(fullname);
-    String bytecodeName = Convert.bytecodeName(fullname);
-
-    if (inputStream == null) {
+    if (missingClasses.contains(fullname)) {
       return new Resolve.SymbolNotFound();
     }
 
+    URL classFile = findClassFile(fullname);
+    if (classFile == null) {
+      if (parent == null) {
+        missingClasses.add(fullname);
+        return new Resolve.SymbolNotFound();
+      }
+      return parent.loadClass(fullname);
+    }
+
     try {
-      ClassReader classReader = new ClassReader(inputStream);
-      String className = classReader.getClassName();
-      if (!className.equals(bytecodeName)) {
+      String className = getClassFileReader().readClassName(classFile);
+      if (!className.equals(Convert.bytecodeName(fullname))) {
+        missingClasses.add(fullname);
         return new Resolve.SymbolNotFound();
       }
     } catch (IOException e) {
       throw Throwables.propagate(e);
-    } finally {
-      Closeables.closeQuietly(inputStream);
     }
 
     return getClassSymbol(fullname);
   }
 
   public Symbol.PackageSymbol enterPackage(String fullname) {
+    if (parent != null) {
+      return parent.enterPackage(fullname);
+    }
     if (StringUtils.isBlank(fullname)) {
       return symbols.defaultPackage;
     }
@@ -222,9 +274,22 @@ public class BytecodeCompleter implements Symbol.Completer {
     return result;
   }
 
+  /**
+   * Package symbols are shared with children completers, so only classes read by this completer are entered into them.
+   */
+  void enterInPackage(Symbol.PackageSymbol packageSymbol, Symbol.TypeSymbol classSymbol) {
+    if (parent == null) {
+      if (packageSymbol.members == null) {
+        // package was without classes so far
+        packageSymbol.members = new Scope(packageSymbol);
+      }
+      packageSymbol.members.enter(classSymbol);
+    }
+  }
+
   public void done() {
-    if (classLoader != null && classLoader instanceof Closeable) {
-      Closeables.closeQuietly((Closeable) classLoader);
+    if (projectClasspath != null && classLoader != null) {
+      Closeables.closeQuietly(classLoader);
     }
   }
 
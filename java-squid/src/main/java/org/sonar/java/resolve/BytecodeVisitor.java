@@ -280,12 +280,7 @@ public class BytecodeVisitor extends ClassVisitor {
       String flatName = className.replace('/', '.');
       classSymbol.name = flatName.substring(flatName.lastIndexOf('.') + 1);
       classSymbol.owner = bytecodeCompleter.enterPackage(flatName);
-      Symbol.PackageSymbol owner = (Symbol.PackageSymbol) classSymbol.owner;
-      if (owner.members == null) {
-        // package was without classes so far
-        owner.members = new Scope(owner);
-      }
-      owner.members.enter(classSymbol);
+      bytecodeCompleter.enterInPackage((Symbol.PackageSymbol) classSymbol.owner, classSymbol);
     }
   }
 
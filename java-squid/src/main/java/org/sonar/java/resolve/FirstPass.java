@@ -101,11 +101,11 @@ public class FirstPass extends BaseTreeVisitor {
       compilationUnitPackage = (Symbol.PackageSymbol) resolve.findIdentInPackage(compilationUnitPackage, packageResolver.packageName, Symbol.PCK);
       semanticModel.associateSymbol(packageName, compilationUnitPackage);
     }
-    compilationUnitPackage.members = new Scope(compilationUnitPackage);
 
     env = new Resolve.Env();
     env.packge = compilationUnitPackage;
-    env.scope = compilationUnitPackage.members;
+    // package symbol is shared between files : scope of compilation unit is not stored in it
+    env.scope = new Scope(compilationUnitPackage);
     env.namedImports = new Scope(compilationUnitPackage);
     env.starImports = resolve.createStarImportScope(compilationUnitPackage);
     env.staticStarImports = resolve.createStaticStarImportScope(compilationUnitPackage);
@@ -21,22 +21,54 @@ package org.sonar.java.resolve;
 
 import com.google.common.collect.Maps;
 
+import javax.annotation.Nullable;
+
 import java.util.Map;
 
 public class ParametrizedTypeCache {
 
+  @Nullable
+  private final ParametrizedTypeCache parent;
   private Map<Symbol, Map<Map<Type.TypeVariableType, Type>, Type.ParametrizedTypeType>> typeCache = Maps.newHashMap();
 
+  public ParametrizedTypeCache() {
+    this(null);
+  }
+
+  /**
+   * Creates a cache which reuses types already known by parent cache, but records new types only locally.
+   */
+  public ParametrizedTypeCache(@Nullable ParametrizedTypeCache parent) {
+    this.parent = parent;
+  }
+
   public Type.ParametrizedTypeType getParametrizedTypeType(Symbol.TypeSymbol symbol, Map<Type.TypeVariableType, Type> typeSubstitution) {
-    if(typeCache.get(symbol) == null) {
-      Map<Map<Type.TypeVariableType, Type>, Type.ParametrizedTypeType> map = Maps.newHashMap();
-      typeCache.put(symbol, map);
+    Type.ParametrizedTypeType result = lookup(symbol, typeSubstitution);
+    if (result == null) {
+      Map<Map<Type.TypeVariableType, Type>, Type.ParametrizedTypeType> map = typeCache.get(symbol);
+      if (map == null) {
+        map = Maps.newHashMap();
+        typeCache.put(symbol, map);
+      }
+      result = new Type.ParametrizedTypeType(symbol, typeSubstitution);
+      map.put(typeSubstitution, result);
     }
-    if(typeCache.get(symbol).get(typeSubstitution) == null) {
-      typeCache.get(symbol).put(typeSubstitution, new Type.ParametrizedTypeType(symbol, typeSubstitution));
-    }
-    return typeCache.get(symbol).get(typeSubstitution);
+    return result;
   }
 
+  @Nullable
+  private Type.ParametrizedTypeType lookup(Symbol.TypeSymbol symbol, Map<Type.TypeVariableType, Type> typeSubstitution) {
+    Type.ParametrizedTypeType result = null;
+    if (parent != null) {
+      result = parent.lookup(symbol, typeSubstitution);
+    }
+    if (result == null) {
+      Map<Map<Type.TypeVariableType, Type>, Type.ParametrizedTypeType> map = typeCache.get(symbol);
+      if (map != null) {
+        result = map.get(typeSubstitution);
+      }
+    }
+    return result;
+  }
 
 }
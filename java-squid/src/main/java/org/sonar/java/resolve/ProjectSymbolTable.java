@@ -0,0 +1,76 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.resolve;
+
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Symbols read from bytecode of libraries and JDK.
+ * Created once per analysis and shared by the semantic models of all files, so that those classes are read only once.
+ * Classes of binary directories are not part of it : being compiled from sources of the project, they can refer to classes declared in the file analyzed,
+ * so they are read by a completer specific to each file, see {@link #createFileCompleter(ParametrizedTypeCache)}.
+ */
+public class ProjectSymbolTable {
+
+  final ParametrizedTypeCache parametrizedTypeCache;
+  final BytecodeCompleter bytecodeCompleter;
+  final Symbols symbols;
+  private final SquidClassLoader classLoader;
+  private final boolean ownsClassLoader;
+
+  public ProjectSymbolTable(List<File> projectClasspath) {
+    this(ClassLoaderBuilder.create(projectClasspath), true);
+  }
+
+  /**
+   * @param classLoader class loader of project classpath, shared with other components and thus not closed by {@link #done()}
+   */
+  public ProjectSymbolTable(SquidClassLoader classLoader) {
+    this(classLoader, false);
+  }
+
+  private ProjectSymbolTable(SquidClassLoader classLoader, boolean ownsClassLoader) {
+    this.classLoader = classLoader;
+    this.ownsClassLoader = ownsClassLoader;
+    parametrizedTypeCache = new ParametrizedTypeCache();
+    bytecodeCompleter = new BytecodeCompleter(classLoader, parametrizedTypeCache, null);
+    symbols = new Symbols(bytecodeCompleter);
+  }
+
+  BytecodeCompleter createFileCompleter(ParametrizedTypeCache fileParametrizedTypeCache) {
+    BytecodeCompleter fileCompleter = new BytecodeCompleter(classLoader, fileParametrizedTypeCache, bytecodeCompleter);
+    fileCompleter.init(symbols);
+    return fileCompleter;
+  }
+
+  /**
+   * Releases resources held to read the classpath, must be called at the end of analysis.
+   */
+  public void done() {
+    if (ownsClassLoader) {
+      classLoader.close();
+    }
+  }
+
+}
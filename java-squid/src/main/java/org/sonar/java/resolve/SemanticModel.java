@@ -21,9 +21,7 @@ package org.sonar.java.resolve;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
-import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -34,8 +32,10 @@ import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.IdentifierTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -44,26 +44,50 @@ import java.util.Map;
 
 public class SemanticModel {
 
-  private final BiMap<Tree, Symbol> symbolsTree = HashBiMap.create();
-  private Multimap<Symbol, IdentifierTree> usagesTree = HashMultimap.create();
-  private Map<IdentifierTree,Symbol> refersTo = Maps.newHashMap();
+  private static final int INITIAL_CAPACITY = 256;
 
+  /**
+   * Trees of the compilation unit indexed by {@link JavaTree#getNodeId()}, other arrays are indexed the same way.
+   */
+  private Tree[] trees = new Tree[INITIAL_CAPACITY];
+  private int[] parents = new int[INITIAL_CAPACITY];
+  private Symbol[] treeSymbols = new Symbol[INITIAL_CAPACITY];
+  private Symbol[] references = new Symbol[INITIAL_CAPACITY];
+  private Resolve.Env[] envs = new Resolve.Env[INITIAL_CAPACITY];
+  /**
+   * Env associated with each tree or with its closest ancestor, computed in a single pass once first pass associated all the envs.
+   */
+  private Resolve.Env[] enclosingEnvs = new Resolve.Env[INITIAL_CAPACITY];
+  private boolean enclosingEnvsComputed = false;
+  private int size = 0;
+
+  private final Map<Symbol, Tree> symbolTrees = Maps.newHashMap();
+  private final Multimap<Symbol, IdentifierTree> usagesTree = ArrayListMultimap.create();
   private final Map<Symbol, Resolve.Env> symbolEnvs = Maps.newHashMap();
-  private final BiMap<Tree, Resolve.Env> envs = HashBiMap.create();
-  private final Map<Tree, Tree> parentLink = Maps.newHashMap();
-  private BytecodeCompleter bytecodeCompleter;
+  private final Map<Resolve.Env, Tree> envTrees = Maps.newIdentityHashMap();
+  private ProjectSymbolTable ownedSymbolTable;
 
   public static SemanticModel createFor(CompilationUnitTree tree, List<File> projectClasspath) {
-    ParametrizedTypeCache parametrizedTypeCache = new ParametrizedTypeCache();
-    BytecodeCompleter bytecodeCompleter = new BytecodeCompleter(projectClasspath, parametrizedTypeCache);
-    Symbols symbols = new Symbols(bytecodeCompleter);
+    ProjectSymbolTable projectSymbolTable = new ProjectSymbolTable(projectClasspath);
+    SemanticModel semanticModel = createFor(tree, projectSymbolTable);
+    semanticModel.ownedSymbolTable = projectSymbolTable;
+    return semanticModel;
+  }
+
+  /**
+   * Creates semantic model of a file, reusing symbols of libraries already read for previous files.
+   */
+  public static SemanticModel createFor(CompilationUnitTree tree, ProjectSymbolTable projectSymbolTable) {
+    ParametrizedTypeCache parametrizedTypeCache = new ParametrizedTypeCache(projectSymbolTable.parametrizedTypeCache);
+    BytecodeCompleter bytecodeCompleter = projectSymbolTable.createFileCompleter(parametrizedTypeCache);
+    Symbols symbols = projectSymbolTable.symbols;
     SemanticModel semanticModel = new SemanticModel();
-    semanticModel.bytecodeCompleter = bytecodeCompleter;
     semanticModel.createParentLink((JavaTree) tree);
     try {
       Resolve resolve = new Resolve(symbols, bytecodeCompleter, parametrizedTypeCache);
       TypeAndReferenceSolver typeAndReferenceSolver = new TypeAndReferenceSolver(semanticModel, symbols, resolve, parametrizedTypeCache);
       new FirstPass(semanticModel, symbols, resolve, typeAndReferenceSolver).visitCompilationUnit(tree);
+      semanticModel.computeEnclosingEnvs();
       typeAndReferenceSolver.visitCompilationUnit(tree);
       new LabelsVisitor(semanticModel).visitCompilationUnit(tree);
     } finally {
@@ -72,8 +96,10 @@ public class SemanticModel {
     return semanticModel;
   }
 
-  public void done(){
-    bytecodeCompleter.done();
+  public void done() {
+    if (ownedSymbolTable != null) {
+      ownedSymbolTable.done();
+    }
   }
 
 
@@ -83,6 +109,10 @@ public class SemanticModel {
     handleMissingTypes(symbols, tree);
   }
 
+  public static void handleMissingTypes(ProjectSymbolTable projectSymbolTable, Tree tree) {
+    handleMissingTypes(projectSymbolTable.symbols, tree);
+  }
+
   /**
    * Handles missing types in Syntax Tree to prevent NPE in subsequent steps of analysis.
    */
@@ -106,18 +136,57 @@ public class SemanticModel {
   SemanticModel() {
   }
 
-  private void createParentLink(JavaTree tree) {
-    if (!tree.isLeaf()) {
+  @VisibleForTesting
+  void createParentLink(JavaTree tree) {
+    createParentLink(tree, -1);
+  }
+
+  private void createParentLink(JavaTree tree, int parent) {
+    boolean indexed = indexOf(tree) >= 0;
+    int id = index(tree);
+    parents[id] = parent;
+    if (!indexed && !tree.isLeaf()) {
       for (Iterator<Tree> iter = tree.childrenIterator(); iter.hasNext(); ) {
         Tree next = iter.next();
         if (next != null) {
-          parentLink.put(next, tree);
-          createParentLink((JavaTree) next);
+          createParentLink((JavaTree) next, id);
         }
       }
     }
   }
 
+  /**
+   * @return id of the tree in this model, -1 if it is not part of it.
+   */
+  private int indexOf(@Nullable Tree tree) {
+    if (!(tree instanceof JavaTree)) {
+      return -1;
+    }
+    int id = ((JavaTree) tree).getNodeId();
+    return id >= 0 && id < size && trees[id] == tree ? id : -1;
+  }
+
+  private int index(Tree tree) {
+    int id = indexOf(tree);
+    if (id < 0) {
+      if (size == trees.length) {
+        int capacity = size * 2;
+        trees = Arrays.copyOf(trees, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        treeSymbols = Arrays.copyOf(treeSymbols, capacity);
+        references = Arrays.copyOf(references, capacity);
+        envs = Arrays.copyOf(envs, capacity);
+        enclosingEnvs = Arrays.copyOf(enclosingEnvs, capacity);
+      }
+      id = size;
+      size++;
+      trees[id] = tree;
+      parents[id] = -1;
+      ((JavaTree) tree).setNodeId(id);
+    }
+    return id;
+  }
+
   public void saveEnv(Symbol symbol, Resolve.Env env) {
     symbolEnvs.put(symbol, env);
   }
@@ -126,54 +195,110 @@ public class SemanticModel {
     return symbolEnvs.get(symbol);
   }
 
+  /**
+   * @throws IllegalArgumentException if env is already associated with another tree
+   */
   public void associateEnv(Tree tree, Resolve.Env env) {
-    envs.put(tree, env);
+    Tree previous = envTrees.get(env);
+    Preconditions.checkArgument(previous == null || previous == tree, "Env is already associated with another tree: %s", env);
+    int id = index(tree);
+    if (envs[id] != null) {
+      envTrees.remove(envs[id]);
+    }
+    envs[id] = env;
+    enclosingEnvsComputed = false;
+    envTrees.put(env, tree);
+  }
+
+  /**
+   * Computes env of every tree from the one of its parent: ids are assigned depth-first, so a parent is computed before its children.
+   * Until then, or once an env is associated again, env of a tree is looked up through its ancestors.
+   */
+  @VisibleForTesting
+  void computeEnclosingEnvs() {
+    for (int i = 0; i < size; i++) {
+      int parent = parents[i];
+      if (envs[i] != null || parent < 0) {
+        enclosingEnvs[i] = envs[i];
+      } else {
+        // a tree shared by several parents is linked to the last one, which might have been indexed after it
+        enclosingEnvs[i] = parent < i ? enclosingEnvs[parent] : findEnclosingEnv(parent);
+      }
+    }
+    enclosingEnvsComputed = true;
+  }
+
+  @CheckForNull
+  private Resolve.Env findEnclosingEnv(int id) {
+    int i = id;
+    while (i >= 0 && envs[i] == null) {
+      i = parents[i];
+    }
+    return i < 0 ? null : envs[i];
   }
 
   public Tree getTree(Resolve.Env env) {
-    return envs.inverse().get(env);
+    return envTrees.get(env);
   }
 
   public Resolve.Env getEnv(Tree tree) {
-    JavaTree javaTree = (JavaTree) tree;
-    Resolve.Env result = null;
-    while (result == null && javaTree != null) {
-      result = envs.get(javaTree);
-      javaTree = (JavaTree) parentLink.get(javaTree);
+    int id = indexOf(tree);
+    if (id < 0) {
+      return null;
     }
-    return result;
+    return enclosingEnvsComputed ? enclosingEnvs[id] : findEnclosingEnv(id);
   }
 
   public Symbol getEnclosingClass(Tree tree) {
     return getEnv(tree).enclosingClass;
   }
 
+  /**
+   * @throws IllegalArgumentException if symbol is already associated with another tree
+   */
   public void associateSymbol(Tree tree, Symbol symbol) {
     Preconditions.checkNotNull(symbol);
-    symbolsTree.put(tree, symbol);
+    Tree previous = symbolTrees.get(symbol);
+    Preconditions.checkArgument(previous == null || previous == tree, "Symbol is already associated with another tree: %s", symbol);
+    int id = index(tree);
+    if (treeSymbols[id] != null) {
+      symbolTrees.remove(treeSymbols[id]);
+    }
+    treeSymbols[id] = symbol;
+    symbolTrees.put(symbol, tree);
   }
 
   public Symbol getSymbol(Tree tree) {
-    return symbolsTree.get(tree);
+    int id = indexOf(tree);
+    return id < 0 ? null : treeSymbols[id];
   }
 
   public Tree getTree(Symbol symbol) {
-    return symbolsTree.inverse().get(symbol);
+    return symbolTrees.get(symbol);
   }
 
-
   public void associateReference(IdentifierTree tree, Symbol symbol) {
-    usagesTree.put(symbol, tree);
-    refersTo.put(tree, symbol);
+    int id = index(tree);
+    if (references[id] != symbol) {
+      references[id] = symbol;
+      usagesTree.put(symbol, tree);
+    }
   }
 
   public Symbol getReference(IdentifierTree tree) {
-    return refersTo.get(tree);
+    int id = indexOf(tree);
+    return id < 0 ? null : references[id];
   }
 
   @VisibleForTesting
   Map<Tree, Symbol> getSymbolsTree() {
-    return Collections.unmodifiableMap(symbolsTree);
+    Map<Tree, Symbol> result = Maps.newHashMap();
+    for (int id = 0; id < size; id++) {
+      if (treeSymbols[id] != null) {
+        result.put(trees[id], treeSymbols[id]);
+      }
+    }
+    return Collections.unmodifiableMap(result);
   }
 
   public Collection<IdentifierTree> getUsages(Symbol symbol) {
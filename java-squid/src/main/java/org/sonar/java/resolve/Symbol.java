@@ -51,6 +51,11 @@ public class Symbol {
 
   Completer completer;
 
+  /**
+   * Set while the completer of this symbol is running: information such as supertypes may not be available yet.
+   */
+  boolean completing = false;
+
   Type type;
 
   boolean isParametrized = false;
@@ -94,7 +99,12 @@ public class Symbol {
     if (completer != null) {
       Completer c = completer;
       completer = null;
-      c.complete(this);
+      completing = true;
+      try {
+        c.complete(this);
+      } finally {
+        completing = false;
+      }
     }
   }
 
@@ -168,6 +178,10 @@ public class Symbol {
     Scope typeParameters;
     List<Type.TypeVariableType> typeVariableTypes;
 
+    private Set<Type.ClassType> superTypes;
+    private Set<Type> erasedSuperTypes;
+    private Set<String> superTypeNames;
+
     public TypeSymbol(int flags, String name, Symbol owner) {
       super(TYP, flags, name, owner);
       this.type = new Type.ClassType(this);
@@ -211,6 +225,9 @@ public class Symbol {
      * @return list of classTypes.
      */
     public Set<Type.ClassType> superTypes() {
+      if (superTypes != null) {
+        return superTypes;
+      }
       ImmutableSet.Builder<Type.ClassType> types = ImmutableSet.builder();
       Type.ClassType superClassType = (Type.ClassType) this.getSuperclass();
       types.addAll(this.interfacesOfType());
@@ -220,7 +237,67 @@ public class Symbol {
         types.addAll(superClassSymbol.interfacesOfType());
         superClassType = (Type.ClassType) superClassSymbol.getSuperclass();
       }
-      return types.build();
+      Set<Type.ClassType> result = types.build();
+      if (isHierarchyComplete(result)) {
+        superTypes = result;
+      }
+      return result;
+    }
+
+    /**
+     * Erasures of {@link #superTypes()}.
+     */
+    Set<Type> erasedSuperTypes() {
+      if (erasedSuperTypes != null) {
+        return erasedSuperTypes;
+      }
+      Set<Type.ClassType> types = superTypes();
+      ImmutableSet.Builder<Type> builder = ImmutableSet.builder();
+      for (Type.ClassType classType : types) {
+        builder.add(classType.erasure());
+      }
+      Set<Type> result = builder.build();
+      if (types == superTypes) {
+        erasedSuperTypes = result;
+      }
+      return result;
+    }
+
+    /**
+     * Fully qualified names of {@link #superTypes()}, unknown types excluded.
+     */
+    Set<String> superTypeNames() {
+      if (superTypeNames != null) {
+        return superTypeNames;
+      }
+      Set<Type.ClassType> types = superTypes();
+      ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+      for (Type.ClassType classType : types) {
+        if (classType.isTagged(Type.CLASS)) {
+          builder.add(classType.getSymbol().getFullyQualifiedName());
+        }
+      }
+      Set<String> result = builder.build();
+      if (types == superTypes) {
+        superTypeNames = result;
+      }
+      return result;
+    }
+
+    /**
+     * Supertypes can only be remembered once every class of the hierarchy has been completed: anonymous classes get their
+     * supertype assigned late by {@link TypeAndReferenceSolver}, and classes being completed do not know their supertypes yet.
+     */
+    private boolean isHierarchyComplete(Set<Type.ClassType> types) {
+      if (name.isEmpty() || completing) {
+        return false;
+      }
+      for (Type.ClassType classType : types) {
+        if (classType.getSymbol().completing) {
+          return false;
+        }
+      }
+      return true;
     }
 
     private Set<Type.ClassType> interfacesOfType() {
@@ -92,14 +92,7 @@ public class Type {
 
   public boolean isSubtypeOf(String fullyQualifiedName) {
     if (isTagged(CLASS)) {
-      if (is(fullyQualifiedName)) {
-        return true;
-      }
-      for (ClassType classType : symbol.superTypes()) {
-        if (classType.is(fullyQualifiedName)) {
-          return true;
-        }
-      }
+      return is(fullyQualifiedName) || symbol.superTypeNames().contains(fullyQualifiedName);
     }
     if(isTagged(TYPEVAR)) {
       return erasure().isSubtypeOf(fullyQualifiedName);
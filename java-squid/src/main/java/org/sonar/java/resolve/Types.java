@@ -19,10 +19,6 @@
  */
 package org.sonar.java.resolve;
 
-import com.google.common.collect.Sets;
-
-import java.util.Set;
-
 public class Types {
 
   /**
@@ -65,12 +61,7 @@ public class Types {
           }
 
           //FIXME work on erased types while generics method is not implemented/read from bytecode.
-          Set<Type> erasedTypes = Sets.newHashSet();
-          for (Type.ClassType classType : t.getSymbol().superTypes()) {
-            erasedTypes.add(classType.erasure());
-          }
-
-          result = erasedTypes.contains(s);
+          result = t.getSymbol().erasedSuperTypes().contains(s);
           break;
         case Type.BOT:
           result = s.tag == Type.BOT || s.tag == Type.CLASS || s.tag == Type.ARRAY;
@@ -0,0 +1,93 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.sonar.java.model.VisitorsBridge;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ClassNamesScannerTest {
+
+  @Test
+  public void should_find_keys_of_classes() {
+    List<String> keys = ClassNamesScanner.scan("/* class Comment */ package org.foo;\n" +
+      "import java.util.List;\n" +
+      "@Annotation({\"class A\", 'c'})\n" +
+      "public class A<T extends List<?>> extends Object implements I {\n" +
+      "  // class Comment\n" +
+      "  int[] array = new int[] {1, 2};\n" +
+      "  Object o = new Object();\n" +
+      "  Class<?> c = A.class;\n" +
+      "  Runnable r = () -> { };\n" +
+      "  A() { if (o.equals(new Object())) { foo(); } }\n" +
+      "  static { }\n" +
+      "  interface I { }\n" +
+      "  @interface B { String value() default \"}\"; }\n" +
+      "  enum E { X, Y(1); E() { } E(int i) { } static class F { } }\n" +
+      "}\n" +
+      "class G { }");
+    assertThat(keys).containsExactly("org/foo/A", "org/foo/A$I", "org/foo/A$B", "org/foo/A$E", "org/foo/A$E$F", "org/foo/G");
+    assertThat(ClassNamesScanner.scan("class A {}")).containsExactly("A");
+    assertThat(ClassNamesScanner.scan("package foo;")).isEmpty();
+  }
+
+  @Test
+  public void should_give_up_when_not_sure() {
+    // local class
+    assertThat(ClassNamesScanner.scan("class A { void foo() { class B { } } }")).isNull();
+    // anonymous classes
+    assertThat(ClassNamesScanner.scan("class A { Object o = new Object() { }; }")).isNull();
+    assertThat(ClassNamesScanner.scan("class A { void foo() { bar(new B(c(), new D()) { }); } }")).isNull();
+    assertThat(ClassNamesScanner.scan("enum A { X { }; }")).isNull();
+    // suppressed warnings
+    assertThat(ClassNamesScanner.scan("@SuppressWarnings(\"all\") class A { }")).isNull();
+    // unicode escapes
+    assertThat(ClassNamesScanner.scan("class \\u0041 { }")).isNull();
+    // unbalanced
+    assertThat(ClassNamesScanner.scan("class A {")).isNull();
+    assertThat(ClassNamesScanner.scan("class A { } }")).isNull();
+    assertThat(ClassNamesScanner.scan("class A { void foo() ) }")).isNull();
+    assertThat(ClassNamesScanner.scan("class")).isNull();
+  }
+
+  @Test
+  public void should_find_same_keys_as_java_files_cache() throws Exception {
+    int scannedFiles = 0;
+    for (File file : FileUtils.listFiles(new File("src/test/java"), new String[] {"java"}, true)) {
+      List<String> keys = ClassNamesScanner.scan(Files.toString(file, Charsets.UTF_8));
+      if (keys != null) {
+        JavaFilesCache javaFilesCache = new JavaFilesCache();
+        JavaAstScanner.scanSingleFile(file, new VisitorsBridge(javaFilesCache));
+        assertThat(keys).as(file.getPath()).containsOnly(javaFilesCache.resourcesCache.keySet().toArray());
+        assertThat(keys).as(file.getPath()).hasSize(javaFilesCache.resourcesCache.size());
+        scannedFiles++;
+      }
+    }
+    assertThat(scannedFiles).isGreaterThan(10);
+  }
+
+}
@@ -40,6 +40,12 @@ public class DefaultJavaResourceLocatorTest {
 
   @BeforeClass
   public static void setup() {
+    DefaultJavaResourceLocator jrl = createJavaResourceLocator();
+    JavaAstScanner.scanSingleFile(new File("src/test/java/org/sonar/java/DefaultJavaResourceLocatorTest.java"), new VisitorsBridge(jrl));
+    javaResourceLocator = jrl;
+  }
+
+  private static DefaultJavaResourceLocator createJavaResourceLocator() {
     Project project = mock(Project.class);
     ProjectFileSystem pfs = mock(ProjectFileSystem.class);
     JavaClasspath javaClasspath = mock(JavaClasspath.class);
@@ -51,8 +57,7 @@ public class DefaultJavaResourceLocatorTest {
     SensorContext sensorContext = mock(SensorContext.class);
     DefaultJavaResourceLocator jrl = new DefaultJavaResourceLocator(project, javaClasspath, new SuppressWarningsFilter());
     jrl.setSensorContext(sensorContext);
-    JavaAstScanner.scanSingleFile(new File("src/test/java/org/sonar/java/DefaultJavaResourceLocatorTest.java"), new VisitorsBridge(jrl));
-    javaResourceLocator = jrl;
+    return jrl;
   }
 
   @Test
@@ -82,6 +87,15 @@ public class DefaultJavaResourceLocatorTest {
     assertThat(javaResourceLocator.findResourceByClassName("org.sonar.java.DumbClassName")).isNull();
   }
 
+  @Test
+  public void test_file_indexed_without_parsing() throws Exception {
+    DefaultJavaResourceLocator jrl = createJavaResourceLocator();
+    jrl.addTestFile(new File("src/test/java/org/sonar/java/DefaultJavaResourceLocatorTest.java"), Lists.newArrayList("org/sonar/java/DefaultJavaResourceLocatorTest"));
+    assertThat(jrl.classKeys()).containsOnly("org/sonar/java/DefaultJavaResourceLocatorTest");
+    assertThat(jrl.findResourceByClassName("org.sonar.java.DefaultJavaResourceLocatorTest")).isNotNull();
+    assertThat(jrl.findSourceFileKeyByClassName("org.sonar.java.DefaultJavaResourceLocatorTest")).isNull();
+  }
+
   @Test
   public void classpath() throws Exception {
     assertThat(javaResourceLocator.classpath()).hasSize(1);
@@ -0,0 +1,123 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.ast.AstScanner;
+import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ExecutionTimeReportTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void nested_calls_should_be_measured_once() {
+    ExecutionTimeReport report = new ExecutionTimeReport(new File("target/unknown"), 1);
+    ExecutionTimeReport.Timer timer = report.timer(ExecutionTimeReport.PHASE, "phase");
+    assertThat(report.timer(ExecutionTimeReport.PHASE, "phase")).isSameAs(timer);
+    timer.start();
+    timer.start();
+    timer.stop();
+    timer.stop();
+    timer.start();
+    timer.stop();
+    // call nested in another one is not counted
+    assertThat(timer.getInvocations()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_save_timers_and_slowest_files() throws Exception {
+    File file = new File(temp.newFolder(), "report.json");
+    ExecutionTimeReport report = new ExecutionTimeReport(file, 2);
+    report.timer(ExecutionTimeReport.PHASE, "phase").start();
+    report.timer(ExecutionTimeReport.PHASE, "phase").stop();
+    report.timer(ExecutionTimeReport.BYTECODE_VISITOR, "never called");
+    report.fileAnalyzed(new File("Fast.java"), 1000000L, 1000000L);
+    report.fileAnalyzed(new File("Slowest.java"), 30000000L, 10000000L);
+    report.fileAnalyzed(new File("Slow.java"), 20000000L, 20000000L);
+    report.save();
+
+    String json = Files.toString(file, Charsets.UTF_8);
+    assertThat(json).isEqualTo(report.toJson());
+    assertThat(json).startsWith("{\"phases\":[{\"name\":\"phase\",\"invocations\":1,");
+    // CPU time is not measured for each call of a visitor
+    assertThat(json).contains("\"bytecodeVisitors\":[{\"name\":\"never called\",\"invocations\":0,\"wallMs\":0}]");
+    assertThat(json).contains("\"slowestFiles\":[{\"file\":\"Slowest.java\",\"wallMs\":30");
+    assertThat(json).contains("},{\"file\":\"Slow.java\",\"wallMs\":20");
+  }
+
+  @Test
+  public void should_measure_visitors_of_each_file() {
+    ExecutionTimeReport report = new ExecutionTimeReport(new File("target/unknown"), 10);
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    conf.setExecutionTimeReport(report);
+    DispatchedVisitor dispatchedVisitor = new DispatchedVisitor();
+    Scanner scanner = new Scanner();
+    VisitorsBridge visitorsBridge = new VisitorsBridge(ImmutableList.of(dispatchedVisitor, scanner), null);
+    visitorsBridge.setExecutionTimeReport(report);
+    AstScanner astScanner = JavaAstScanner.create(conf, visitorsBridge);
+    File source = new File("src/test/files/metrics/Comments.java");
+    astScanner.scan(ImmutableList.of(source, source));
+
+    assertThat(dispatchedVisitor.visitedNodes).isGreaterThan(0);
+    assertThat(report.timer(ExecutionTimeReport.JAVA_FILE_SCANNER, dispatchedVisitor).getInvocations()).isGreaterThan(dispatchedVisitor.visitedNodes);
+    assertThat(report.timer(ExecutionTimeReport.JAVA_FILE_SCANNER, scanner).getInvocations()).isEqualTo(2);
+    assertThat(report.timer(ExecutionTimeReport.AST_VISITOR, visitorsBridge).getInvocations()).isGreaterThan(0);
+    assertThat(report.timer(ExecutionTimeReport.PHASE, "Parsing").getInvocations()).isEqualTo(2);
+    assertThat(report.timer(ExecutionTimeReport.PHASE, "Semantic model").getInvocations()).isEqualTo(2);
+    assertThat(report.toJson()).contains("\"slowestFiles\":[{\"file\":\"" + source.getPath() + "\"");
+  }
+
+  private static class DispatchedVisitor extends SubscriptionVisitor {
+    private int visitedNodes;
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return ImmutableList.of(Tree.Kind.METHOD);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      visitedNodes++;
+    }
+  }
+
+  private static class Scanner implements JavaFileScanner {
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+    }
+  }
+
+}
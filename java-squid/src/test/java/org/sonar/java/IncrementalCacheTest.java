@@ -0,0 +1,209 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.SourceFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IncrementalCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_restore_saved_results() throws Exception {
+    File file = new File(temp.newFolder(), "cache");
+    IncrementalCache cache = new IncrementalCache(file, "fingerprint", Collections.<Class<?>>emptyList());
+    IncrementalCache.FileResults results = new IncrementalCache.FileResults("hash");
+    CheckMessage checkMessage = new CheckMessage(RuleKey.of("squid", "S00001"), "message {0}", "arg");
+    checkMessage.setLine(42);
+    checkMessage.setCost(2.0);
+    results.addIssue(checkMessage);
+    results.addNoSonarLines(ImmutableSet.of(3, 5));
+    results.addSymbol(new int[] {10, 15, 20});
+    cache.put("file", results);
+    cache.save();
+
+    cache = new IncrementalCache(file, "fingerprint", Collections.<Class<?>>emptyList());
+    results = cache.get("file", "hash");
+    assertThat(results).isNotNull();
+    assertThat(results.getNoSonarLines()).containsOnly(3, 5);
+    assertThat(results.getSymbols()).hasSize(1);
+    assertThat(results.getSymbols().get(0)).isEqualTo(new int[] {10, 15, 20});
+    assertThat(results.getIssues()).hasSize(1);
+    IncrementalCache.Issue issue = results.getIssues().get(0);
+    assertThat(issue.isRuleKey()).isTrue();
+    assertThat(issue.getCheckId()).isEqualTo("squid:S00001");
+    CheckMessage restored = issue.toCheckMessage(RuleKey.parse(issue.getCheckId()));
+    assertThat(restored.getLine()).isEqualTo(42);
+    assertThat(restored.getCost()).isEqualTo(2.0);
+    assertThat(restored.formatDefaultMessage()).isEqualTo("message arg");
+  }
+
+  @Test
+  public void should_ignore_results_of_modified_file() throws Exception {
+    File file = new File(temp.newFolder(), "cache");
+    IncrementalCache cache = new IncrementalCache(file, "fingerprint", Collections.<Class<?>>emptyList());
+    cache.put("file", new IncrementalCache.FileResults("hash"));
+    cache.save();
+
+    cache = new IncrementalCache(file, "fingerprint", Collections.<Class<?>>emptyList());
+    assertThat(cache.get("file", "hash")).isNotNull();
+    assertThat(cache.get("file", "other")).isNull();
+    assertThat(cache.get("other", "hash")).isNull();
+  }
+
+  @Test
+  public void should_discard_results_when_fingerprint_changes() throws Exception {
+    File file = new File(temp.newFolder(), "cache");
+    IncrementalCache cache = new IncrementalCache(file, "fingerprint", Collections.<Class<?>>emptyList());
+    cache.put("file", new IncrementalCache.FileResults("hash"));
+    cache.save();
+
+    assertThat(new IncrementalCache(file, "fingerprint", Collections.<Class<?>>emptyList()).get("file", "hash")).isNotNull();
+    assertThat(new IncrementalCache(file, "other", Collections.<Class<?>>emptyList()).get("file", "hash")).isNull();
+  }
+
+  @Test
+  public void should_cache_only_rules_not_executed_always() {
+    IncrementalCache cache = new IncrementalCache(new File("target/unknown"), "fingerprint", ImmutableList.<Class<?>>of(AlwaysExecutedCheck.class));
+    assertThat(cache.isCached(new CachedCheck())).isTrue();
+    assertThat(cache.isCached(new AlwaysExecutedCheck())).isFalse();
+    assertThat(cache.isCached(new Object())).isFalse();
+  }
+
+  @Test
+  public void should_replay_issues_of_unchanged_file() throws Exception {
+    File file = new File(temp.newFolder(), "cache");
+    File source = new File("src/test/files/metrics/Comments.java");
+    CachedCheck check = new CachedCheck();
+
+    SourceFile sourceFile = scan(source, new IncrementalCache(file, "fingerprint", Collections.<Class<?>>emptyList()), check);
+    assertThat(check.scannedFiles).isEqualTo(1);
+    assertThat(sourceFile.getCheckMessages()).hasSize(1);
+
+    sourceFile = scan(source, new IncrementalCache(file, "fingerprint", Collections.<Class<?>>emptyList()), check);
+    assertThat(check.scannedFiles).isEqualTo(1);
+    assertThat(sourceFile.getCheckMessages()).hasSize(1);
+    CheckMessage checkMessage = sourceFile.getCheckMessages().iterator().next();
+    assertThat(checkMessage.getCheck()).isEqualTo(RuleKey.of("squid", "cached"));
+    assertThat(checkMessage.getLine()).isEqualTo(1);
+    assertThat(sourceFile.getNoSonarTagLines()).containsOnly(15);
+
+    scan(source, new IncrementalCache(file, "other", Collections.<Class<?>>emptyList()), check);
+    assertThat(check.scannedFiles).isEqualTo(2);
+  }
+
+  @Test
+  public void class_signatures_hash_should_ignore_bodies_of_methods() throws Exception {
+    File directory = temp.newFolder();
+    Collection<String> classNames = ImmutableList.of("org/example/A");
+
+    writeClass(directory, "foo", 1);
+    String hash = IncrementalCache.hashClassSignatures(directory, classNames);
+    writeClass(directory, "foo", 2);
+    assertThat(IncrementalCache.hashClassSignatures(directory, classNames)).isEqualTo(hash);
+
+    writeClass(directory, "bar", 2);
+    assertThat(IncrementalCache.hashClassSignatures(directory, classNames)).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void code_source_hash_should_change_with_content_of_jar_or_directory() throws Exception {
+    File directory = temp.newFolder();
+    File jar = new File(directory, "checks.jar");
+    Files.write("version 1", jar, Charsets.UTF_8);
+    String jarHash = IncrementalCache.hashLocation(jar);
+    String directoryHash = IncrementalCache.hashLocation(directory);
+    assertThat(IncrementalCache.hashLocation(jar)).isEqualTo(jarHash);
+    assertThat(IncrementalCache.hashLocation(directory)).isEqualTo(directoryHash);
+
+    Files.write("version 2", jar, Charsets.UTF_8);
+    assertThat(IncrementalCache.hashLocation(jar)).isNotEqualTo(jarHash);
+    Files.write("other", new File(directory, "Other.class"), Charsets.UTF_8);
+    assertThat(IncrementalCache.hashLocation(directory)).isNotEqualTo(directoryHash);
+
+    assertThat(IncrementalCache.hashCodeSource(IncrementalCache.class)).isNotEmpty();
+    assertThat(IncrementalCache.hashLocation(null)).isEqualTo("unknown");
+  }
+
+  /**
+   * Writes class org.example.A with a single method returning given value.
+   */
+  private static void writeClass(File directory, String methodName, int returnedValue) throws IOException {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, "org/example/A", null, "java/lang/Object", null);
+    MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, methodName, "()I", null, null);
+    mv.visitCode();
+    mv.visitIntInsn(Opcodes.BIPUSH, returnedValue);
+    mv.visitInsn(Opcodes.IRETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    cw.visitEnd();
+    File classFile = new File(directory, "org/example/A.class");
+    Files.createParentDirs(classFile);
+    Files.write(cw.toByteArray(), classFile);
+  }
+
+  private static SourceFile scan(File source, IncrementalCache cache, JavaFileScanner check) {
+    VisitorsBridge visitorsBridge = new VisitorsBridge(check);
+    visitorsBridge.setIncrementalCache(cache);
+    SourceFile sourceFile = JavaAstScanner.scanSingleFile(source, visitorsBridge);
+    cache.save();
+    return sourceFile;
+  }
+
+  @org.sonar.check.Rule(key = "cached")
+  private static class CachedCheck implements JavaFileScanner {
+    private int scannedFiles;
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      scannedFiles++;
+      context.addIssue(1, RuleKey.of("squid", "cached"), "message");
+    }
+  }
+
+  @org.sonar.check.Rule(key = "always")
+  private static class AlwaysExecutedCheck {
+  }
+
+}
@@ -19,10 +19,16 @@
  */
 package org.sonar.java;
 
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
 import org.junit.Test;
+import org.sonar.squidbridge.SquidAstVisitor;
 import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.sslr.parser.LexerlessGrammar;
 
 import java.io.File;
+import java.net.URI;
+import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -41,4 +47,17 @@ public class JavaAstScannerTest {
     assertThat(file.getNoSonarTagLines()).contains(8);
   }
 
+  @Test
+  public void tokens_should_be_located_in_their_file() {
+    final List<URI> uris = Lists.newArrayList();
+    File file = new File("src/test/files/metrics/Comments.java");
+    JavaAstScanner.scanSingleFile(file, new SquidAstVisitor<LexerlessGrammar>() {
+      @Override
+      public void visitFile(AstNode astNode) {
+        uris.add(astNode.getToken().getURI());
+      }
+    });
+    assertThat(uris).containsExactly(file.toURI());
+  }
+
 }
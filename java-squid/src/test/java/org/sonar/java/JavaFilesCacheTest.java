@@ -54,12 +54,12 @@ public class JavaFilesCacheTest {
     assertThat(javaFilesCache.methodStartLines.keySet()).contains("org/sonar/java/JavaFilesCacheTest#method_start_lines_mapping()V");
     assertThat(javaFilesCache.methodStartLines.keySet()).contains("org/sonar/java/JavaFilesCacheTest$A#method()V");
     assertThat(javaFilesCache.methodStartLines.keySet()).contains("org/sonar/java/JavaFilesCacheTest#resource_file_mapping()V");
-    assertThat(javaFilesCache.suppressWarningLines.keySet()).hasSize(13);
+    assertThat(javaFilesCache.suppressWarnings.getWarnings(70)).isEmpty();
     for (Integer line : Lists.newArrayList(68, 69, 73, 74, 75, 76, 77, 78, 79, 80, 81, 82, 83)) {
-      assertThat(javaFilesCache.suppressWarningLines.get(line)).contains("all");
+      assertThat(javaFilesCache.suppressWarnings.getWarnings(line)).contains("all");
     }
     for (Integer line : Lists.newArrayList(77, 78, 79, 80, 81)) {
-      assertThat(javaFilesCache.suppressWarningLines.get(line)).contains("foo", "bar");
+      assertThat(javaFilesCache.suppressWarnings.getWarnings(line)).contains("foo", "bar");
     }
   }
 
@@ -94,6 +94,11 @@ public class MeasurerTest {
     checkMetric("Complexity.java", "complexity", 13.0);
   }
 
+  @Test
+  public void verify_complexity_in_functions_metric() {
+    checkMetric("Complexity.java", "complexity_in_functions", 13.0);
+  }
+
   @Test
   public void verify_function_metric_not_analysing_accessors() {
     checkMetric(false, baseDir, "Complexity.java", "functions", 7.0);
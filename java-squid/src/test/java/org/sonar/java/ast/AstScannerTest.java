@@ -20,9 +20,12 @@
 package org.sonar.java.ast;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.junit.Rule;
@@ -37,9 +40,13 @@ import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.parser.LexerlessGrammar;
 import org.sonar.sslr.parser.ParserAdapter;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.List;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class AstScannerTest {
@@ -51,7 +58,7 @@ public class AstScannerTest {
   public void should_not_fail_whole_analysis_upon_parse_error_and_notify_audit_listeners() {
     FakeAuditListener listener = spy(new FakeAuditListener());
 
-    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()));
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
     scanner.withSquidAstVisitor(listener);
 
     scanner.scan(ImmutableList.of(new File("src/test/resources/AstScannerParseError.txt")));
@@ -60,7 +67,7 @@ public class AstScannerTest {
 
   @Test
   public void should_propagate_visitor_exception_when_there_also_is_a_parse_error() {
-    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()));
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
     scanner.withSquidAstVisitor(new SquidAstVisitor<LexerlessGrammar>() {
 
       @Override
@@ -90,7 +97,7 @@ public class AstScannerTest {
 
   @Test
   public void should_propagate_visitor_exception_when_no_parse_error() {
-    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()));
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
     scanner.withSquidAstVisitor(new SquidAstVisitor<LexerlessGrammar>() {
 
       @Override
@@ -118,6 +125,38 @@ public class AstScannerTest {
     scanner.scan(ImmutableList.of(new File("src/test/resources/AstScannerNoParseError.txt")));
   }
 
+  @Test
+  public void parallel_parsing_should_visit_files_in_order() {
+    AstScanner scanner = new AstScanner(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build()), Charsets.UTF_8);
+    scanner.setParallelParsing(3, new Supplier<Parser<LexerlessGrammar>>() {
+      @Override
+      public Parser<LexerlessGrammar> get() {
+        return new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build());
+      }
+    });
+    final List<String> visited = Lists.newArrayList();
+    FakeAuditListener listener = spy(new FakeAuditListener() {
+      @Override
+      public void visitFile(@Nullable AstNode node) {
+        visited.add(getContext().getFile().getName() + (node == null ? " (parse error)" : ""));
+      }
+    });
+    scanner.withSquidAstVisitor(listener);
+
+    File noParseError = new File("src/test/resources/AstScannerNoParseError.txt");
+    File parseError = new File("src/test/resources/AstScannerParseError.txt");
+    scanner.scan(ImmutableList.of(noParseError, parseError, noParseError, noParseError, parseError, noParseError));
+
+    assertThat(visited).containsExactly(
+      "AstScannerNoParseError.txt",
+      "AstScannerParseError.txt (parse error)",
+      "AstScannerNoParseError.txt",
+      "AstScannerNoParseError.txt",
+      "AstScannerParseError.txt (parse error)",
+      "AstScannerNoParseError.txt");
+    verify(listener, times(2)).processRecognitionException(Mockito.any(RecognitionException.class));
+  }
+
   private static class FakeAuditListener extends SquidAstVisitor<LexerlessGrammar> implements AstScannerExceptionHandler {
 
     @Override
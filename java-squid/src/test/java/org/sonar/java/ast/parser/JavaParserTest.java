@@ -0,0 +1,61 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.parser;
+
+import com.google.common.base.Charsets;
+import org.junit.Test;
+import org.sonar.java.parser.sslr.ActionParser2;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JavaParserTest {
+
+  @Test
+  public void parsers_should_share_grammar() {
+    ActionParser2 parser = JavaParser.createParser(Charsets.UTF_8);
+    ActionParser2 otherParser = JavaParser.createParser(Charsets.ISO_8859_1);
+    assertThat(parser).isNotSameAs(otherParser);
+    assertThat(parser.getGrammar()).isSameAs(otherParser.getGrammar());
+
+    CompilationUnitTree tree = (CompilationUnitTree) parser.parse("class A {}");
+    CompilationUnitTree otherTree = (CompilationUnitTree) otherParser.parse("class B {}");
+    assertThat(tree.types()).hasSize(1);
+    assertThat(otherTree.types()).hasSize(1);
+    assertThat(tree.types().get(0)).isNotSameAs(otherTree.types().get(0));
+  }
+
+  @Test
+  public void parsers_of_different_threads_should_not_share_grammar() throws Exception {
+    final ActionParser2[] otherThreadParser = new ActionParser2[1];
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        otherThreadParser[0] = JavaParser.createParser(Charsets.UTF_8);
+      }
+    });
+    thread.start();
+    thread.join();
+
+    ActionParser2 parser = JavaParser.createParser(Charsets.UTF_8);
+    assertThat(otherThreadParser[0].getGrammar()).isNotSameAs(parser.getGrammar());
+  }
+
+}
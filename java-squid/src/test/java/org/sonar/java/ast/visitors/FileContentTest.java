@@ -0,0 +1,70 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FileContentTest {
+
+  @Test
+  public void lines() {
+    FileContent fileContent = new FileContent("a\nbc\r\nd\re\r");
+    assertThat(fileContent.getLinesCount()).isEqualTo(5);
+    assertThat(fileContent.getLineStart(1)).isEqualTo(0);
+    assertThat(fileContent.getLineStart(2)).isEqualTo(2);
+    assertThat(fileContent.getLineStart(3)).isEqualTo(6);
+    assertThat(fileContent.getLineStart(4)).isEqualTo(8);
+    assertThat(fileContent.getLineStart(5)).isEqualTo(10);
+  }
+
+  @Test
+  public void empty_content_has_one_line() {
+    FileContent fileContent = new FileContent("");
+    assertThat(fileContent.getLinesCount()).isEqualTo(1);
+    assertThat(fileContent.getLineStart(1)).isEqualTo(0);
+  }
+
+  @Test
+  public void many_lines() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      sb.append("line\n");
+    }
+    FileContent fileContent = new FileContent(sb.toString());
+    assertThat(fileContent.getLinesCount()).isEqualTo(101);
+    assertThat(fileContent.getLineStart(100)).isEqualTo(99 * 5);
+  }
+
+  @Test
+  public void count_line_terminators() {
+    assertThat(FileContent.countLineTerminators("")).isEqualTo(0);
+    assertThat(FileContent.countLineTerminators("/* a */")).isEqualTo(0);
+    assertThat(FileContent.countLineTerminators("a\nbc\r\nd\re\r")).isEqualTo(4);
+    assertThat(FileContent.countLineTerminators("\r\r\n\n")).isEqualTo(3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void line_out_of_range() {
+    new FileContent("a").getLineStart(2);
+  }
+
+}
@@ -44,7 +44,7 @@ public class FileLinesVisitorTest {
     FileLinesContext context = mock(FileLinesContext.class);
     when(sonarComponents.fileLinesContextFor(Mockito.any(File.class))).thenReturn(context);
 
-    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), new FileLinesVisitor(sonarComponents, Charsets.UTF_8));
+    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), new FileLinesVisitor(sonarComponents));
     scanner.scan(ImmutableList.of(new File("src/test/files/metrics/LinesOfCode.java")));
 
     verify(context).setIntValue(CoreMetrics.NCLOC_DATA_KEY, 1, 0);
@@ -63,7 +63,7 @@ public class FileLinesVisitorTest {
     FileLinesContext context = mock(FileLinesContext.class);
     when(sonarComponents.fileLinesContextFor(Mockito.any(File.class))).thenReturn(context);
 
-    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), new FileLinesVisitor(sonarComponents, Charsets.UTF_8));
+    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8), new FileLinesVisitor(sonarComponents));
     scanner.scan(ImmutableList.of(new File("src/test/files/metrics/Comments.java")));
 
     verify(context).setIntValue(CoreMetrics.COMMENT_LINES_DATA_KEY, 1, 1);
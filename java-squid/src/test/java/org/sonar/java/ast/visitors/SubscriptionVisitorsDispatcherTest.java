@@ -0,0 +1,108 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.sonar.java.JavaAstScanner;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SubscriptionVisitorsDispatcherTest {
+
+  private static final File FILE = new File("src/test/files/metrics/Comments.java");
+
+  @Test
+  public void should_dispatch_visitors_not_overriding_traversal() {
+    assertThat(SubscriptionVisitorsDispatcher.canDispatch(new RecordingVisitor(Tree.Kind.CLASS))).isTrue();
+    assertThat(SubscriptionVisitorsDispatcher.canDispatch(new NotDispatchedVisitor(Tree.Kind.CLASS))).isFalse();
+  }
+
+  @Test
+  public void should_visit_as_individual_traversal() {
+    Tree.Kind[] kinds = {Tree.Kind.CLASS, Tree.Kind.METHOD, Tree.Kind.TRIVIA};
+    RecordingVisitor dispatched = new RecordingVisitor(kinds);
+    RecordingVisitor tokens = new RecordingVisitor(Tree.Kind.TOKEN);
+    NotDispatchedVisitor notDispatched = new NotDispatchedVisitor(kinds);
+    JavaAstScanner.scanSingleFile(FILE, new VisitorsBridge(ImmutableList.of(dispatched, tokens, notDispatched), null));
+
+    assertThat(dispatched.events).isNotEmpty();
+    assertThat(dispatched.events).isEqualTo(notDispatched.events);
+    assertThat(dispatched.events).contains("visit CLASS", "leave METHOD", "trivia // comment");
+    assertThat(tokens.events).contains("token class");
+    assertThat(tokens.events).excludes("visit CLASS", "trivia // comment");
+  }
+
+  private static class RecordingVisitor extends SubscriptionVisitor {
+    private final List<Tree.Kind> kinds;
+    final List<String> events = Lists.newArrayList();
+
+    RecordingVisitor(Tree.Kind... kinds) {
+      this.kinds = ImmutableList.copyOf(kinds);
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return kinds;
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      events.add("visit " + ((JavaTree) tree).getKind());
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+      events.add("leave " + ((JavaTree) tree).getKind());
+    }
+
+    @Override
+    public void visitToken(SyntaxToken syntaxToken) {
+      events.add("token " + syntaxToken.text());
+    }
+
+    @Override
+    public void visitTrivia(SyntaxTrivia syntaxTrivia) {
+      events.add("trivia " + syntaxTrivia.comment());
+    }
+  }
+
+  private static class NotDispatchedVisitor extends RecordingVisitor {
+    NotDispatchedVisitor(Tree.Kind... kinds) {
+      super(kinds);
+    }
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      super.scanFile(context);
+    }
+  }
+
+}
@@ -20,15 +20,26 @@
 package org.sonar.java.bytecode;
 
 import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.java.ExecutionTimeReport;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmClassProvider;
+import org.sonar.java.bytecode.asm.AsmEdge;
+import org.sonar.java.bytecode.asm.AsmMethod;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.bytecode.visitor.BytecodeVisitor;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.squidbridge.indexer.SquidIndex;
 
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -55,6 +66,66 @@ public class BytecodeScannerTest {
 
   }
 
+  @Test
+  public void reading_class_files_on_several_threads_should_not_change_results() throws Exception {
+    assertThat(scan(2, null)).isEqualTo(scan(1, null));
+    assertThat(scan(1, null)).contains("class tags/impl/Todo", "edge IMPLEMENTS tags/Tag 0");
+  }
+
+  @Test
+  public void measuring_visitors_should_not_change_results() throws Exception {
+    ExecutionTimeReport report = new ExecutionTimeReport(new File("target/unknown"), 1);
+    assertThat(scan(1, report)).isEqualTo(scan(1, null));
+    ExecutionTimeReport.Timer timer = report.timer(ExecutionTimeReport.BYTECODE_VISITOR, RecordingVisitor.class.getName());
+    assertThat(timer.getInvocations()).isGreaterThan(0);
+  }
+
+  @Test
+  public void reading_threads_should_be_positive() {
+    thrown.expect(IllegalArgumentException.class);
+    new BytecodeScanner(null, null).setReadingThreads(0);
+  }
+
+  private static List<String> scan(int readingThreads, @Nullable ExecutionTimeReport executionTimeReport) {
+    File binDir = new File("src/test/files/bytecode/bin");
+    List<String> classKeys = Lists.newArrayList();
+    for (File file : FileUtils.listFiles(binDir, new String[] {"class"}, true)) {
+      String path = file.getPath().replace(File.separatorChar, '/');
+      classKeys.add(path.substring(binDir.getPath().length() + 1, path.length() - ".class".length()));
+    }
+    Collections.sort(classKeys);
+    JavaResourceLocator javaResourceLocator = mock(JavaResourceLocator.class);
+    when(javaResourceLocator.classKeys()).thenReturn(classKeys);
+    BytecodeScanner bytecodeScanner = new BytecodeScanner(null, javaResourceLocator);
+    bytecodeScanner.setReadingThreads(readingThreads);
+    bytecodeScanner.setExecutionTimeReport(executionTimeReport);
+    RecordingVisitor visitor = new RecordingVisitor();
+    bytecodeScanner.accept(visitor);
+    SquidClassLoader classLoader = ClassLoaderBuilder.create(binDir);
+    bytecodeScanner.scan(classLoader);
+    classLoader.close();
+    return visitor.events;
+  }
+
+  private static class RecordingVisitor extends BytecodeVisitor {
+    private final List<String> events = Lists.newArrayList();
+
+    @Override
+    public void visitClass(AsmClass asmClass) {
+      events.add("class " + asmClass.getInternalName());
+    }
+
+    @Override
+    public void visitMethod(AsmMethod asmMethod) {
+      events.add("method " + asmMethod.getKey() + " " + asmMethod.isUsed());
+    }
+
+    @Override
+    public void visitEdge(AsmEdge asmEdge) {
+      events.add("edge " + asmEdge.getUsage() + " " + asmEdge.getTargetAsmClass().getInternalName() + " " + asmEdge.getSourceLineNumber());
+    }
+  }
+
   private static class Visitor extends BytecodeVisitor {
     @Override
     public void visitClass(AsmClass asmClass) {
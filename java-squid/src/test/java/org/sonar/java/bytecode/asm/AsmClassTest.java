@@ -51,6 +51,24 @@ public class AsmClassTest {
     assertThat(new AsmClass("java/lang/String").hashCode()).isNotEqualTo(new AsmClass("java/lang/Number").hashCode());
   }
 
+  @Test
+  public void release_calls_should_keep_structure() {
+    AsmClassProvider asmClassProvider = new AsmClassProviderImpl();
+    AsmClass asmClass = asmClassProvider.getClass("java/lang/String", AsmClassProvider.DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    AsmMethod getBytes = asmClass.getMethod("getBytes(Ljava/lang/String;)[B");
+    assertThat(getBytes.getCallsToMethod()).isNotEmpty();
+    assertThat(getBytes.getThrows()).hasSize(1);
+
+    asmClass.releaseCalls();
+    assertThat(getBytes.getCallsToMethod()).isEmpty();
+    assertThat(getBytes.getThrows()).hasSize(1);
+    for (AsmField field : asmClass.getFields()) {
+      assertThat(field.getOutgoingEdges()).isEmpty();
+    }
+    assertThat(asmClass.getSuperClass().getInternalName()).isEqualTo("java/lang/Object");
+    assertThat(asmClass.getImplementedInterfaces()).isNotEmpty();
+  }
+
   @Test
   public void getDisplayName() {
     assertThat(new AsmClass("java/lang/String").getDisplayName()).isEqualTo("java.lang.String");
@@ -0,0 +1,75 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ClassFileReaderTest {
+
+  private final ClassFileReader reader = new ClassFileReader();
+
+  @Test
+  public void read_class_name() throws Exception {
+    assertThat(reader.readClassName(new File("src/test/files/bytecode/bin/tags/TagName.class").toURI().toURL())).isEqualTo("tags/TagName");
+    assertThat(reader.readClassName(new URL("jar:" + new File("src/test/files/bytecode/lib/hello.jar").toURI() + "!/org/sonar/tests/Hello.class")))
+        .isEqualTo("org/sonar/tests/Hello");
+    // class bigger than initial size of buffer
+    assertThat(reader.readClassName(getClass().getClassLoader().getResource("java/lang/Character.class"))).isEqualTo("java/lang/Character");
+  }
+
+  @Test
+  public void read_bytes_of_exact_size() throws Exception {
+    File classFile = new File("src/test/files/bytecode/bin/tags/TagName.class");
+    assertThat(ClassFileReader.readBytes(classFile.toURI().toURL()).length).isEqualTo((int) classFile.length());
+    URL jarEntry = new URL("jar:" + new File("src/test/files/bytecode/lib/hello.jar").toURI() + "!/org/sonar/tests/Hello.class");
+    assertThat(new ClassReader(ClassFileReader.readBytes(jarEntry)).getClassName()).isEqualTo("org/sonar/tests/Hello");
+  }
+
+  @Test
+  public void nested_reads_use_distinct_buffers() throws Exception {
+    final URL outer = new File("src/test/files/bytecode/bin/tags/TagName.class").toURI().toURL();
+    final URL inner = getClass().getClassLoader().getResource("java/lang/String.class");
+    final List<String> visited = new ArrayList<String>();
+    reader.accept(outer, new ClassVisitor(Opcodes.ASM5) {
+      @Override
+      public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        try {
+          visited.add(reader.readClassName(inner));
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+        visited.add(name);
+      }
+    }, 0);
+    assertThat(visited).containsExactly("java/lang/String", "tags/TagName");
+  }
+
+}
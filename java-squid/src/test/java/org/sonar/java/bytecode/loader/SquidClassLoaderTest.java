@@ -109,6 +109,24 @@ public class SquidClassLoaderTest {
     assertThat(classLoader.findResource("notfound")).isNull();
   }
 
+  @Test
+  public void findResourceInDirectories_ignores_jars() throws Exception {
+    File dir = new File("src/test/files/bytecode/bin/");
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    classLoader = new SquidClassLoader(Arrays.asList(jar, dir));
+    assertThat(classLoader.findResourceInDirectories("tags/TagName.class")).isNotNull();
+    assertThat(classLoader.findResourceInDirectories("org/sonar/tests/Hello.class")).isNull();
+    assertThat(classLoader.findResource("org/sonar/tests/Hello.class")).isNotNull();
+  }
+
+  @Test
+  public void class_names_of_directory() throws Exception {
+    File dir = new File("src/test/files/bytecode/bin/");
+    classLoader = new SquidClassLoader(Arrays.asList(dir));
+    assertThat(classLoader.getClassNames(dir)).contains("tags/TagName");
+    assertThat(classLoader.getClassNames(new File("src/test/files/bytecode/lib/"))).isEmpty();
+  }
+
   @Test
   public void testFindResources() throws Exception {
     File dir = new File("src/test/files/bytecode/bin/");
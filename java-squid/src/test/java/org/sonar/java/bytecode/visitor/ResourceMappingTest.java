@@ -0,0 +1,41 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.visitor;
+
+import org.junit.Test;
+import org.sonar.api.design.Dependency;
+import org.sonar.api.resources.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ResourceMappingTest {
+
+  @Test
+  public void sub_dependencies_are_not_duplicated() {
+    ResourceMapping resourceMapping = new ResourceMapping();
+    Dependency parent = new Dependency(new File("org/foo"), new File("org/bar"));
+    Dependency subDependency = new Dependency(new File("org/foo/A.java"), new File("org/bar/B.java"));
+
+    assertThat(resourceMapping.addSubDependency(parent, subDependency)).isTrue();
+    assertThat(resourceMapping.addSubDependency(parent, new Dependency(new File("org/foo/A.java"), new File("org/bar/B.java")))).isFalse();
+    assertThat(resourceMapping.getSubDependencies(parent)).containsOnly(subDependency);
+  }
+
+}
@@ -19,14 +19,15 @@
  */
 package org.sonar.java.filters;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.issue.batch.IssueFilterChain;
 import org.sonar.api.rule.RuleKey;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.Matchers.isA;
@@ -50,10 +51,10 @@ public class SuppressWarningsFilterTest {
     when(issue.componentKey()).thenReturn(COMPONENT_KEY);
     when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "firstIssue"));
 
-    Multimap<Integer, String> suppressWarningLines = HashMultimap.create();
-    addWarning(suppressWarningLines, "squid:secondIssue", 12, 16);
+    SuppressWarningsIndex suppressWarnings = new SuppressWarningsIndex();
+    suppressWarnings.add(12, 16, Collections.singleton("squid:secondIssue"));
 
-    filter.addComponent(COMPONENT_KEY, suppressWarningLines);
+    filter.addComponent(COMPONENT_KEY, suppressWarnings);
 
     // issue on file
     when(issue.line()).thenReturn(null);
@@ -72,10 +73,10 @@ public class SuppressWarningsFilterTest {
     when(issue.componentKey()).thenReturn(COMPONENT_KEY + "2");
     when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "firstIssue"));
 
-    Multimap<Integer, String> suppressWarningLines = HashMultimap.create();
-    addWarning(suppressWarningLines, "squid:secondIssue", 12, 16);
+    SuppressWarningsIndex suppressWarnings = new SuppressWarningsIndex();
+    suppressWarnings.add(12, 16, Collections.singleton("squid:secondIssue"));
 
-    filter.addComponent(COMPONENT_KEY, suppressWarningLines);
+    filter.addComponent(COMPONENT_KEY, suppressWarnings);
 
     // issue on file
     when(issue.line()).thenReturn(null);
@@ -92,10 +93,10 @@ public class SuppressWarningsFilterTest {
     when(issue.componentKey()).thenReturn(COMPONENT_KEY);
     when(issue.ruleKey()).thenReturn(RuleKey.of("pmd", "CloseResource"));
 
-    Multimap<Integer, String> suppressWarningLines = HashMultimap.create();
-    addWarning(suppressWarningLines, "pmd:CloseResource", 12, 16);
+    SuppressWarningsIndex suppressWarnings = new SuppressWarningsIndex();
+    suppressWarnings.add(12, 16, Collections.singleton("pmd:CloseResource"));
 
-    filter.addComponent(COMPONENT_KEY, suppressWarningLines);
+    filter.addComponent(COMPONENT_KEY, suppressWarnings);
 
     // issue on every line covered by @SuppressWarnings, but same as explicitly mentioned
     for (int i = 12; i <= 16; i++) {
@@ -110,10 +111,10 @@ public class SuppressWarningsFilterTest {
     when(issue.componentKey()).thenReturn(COMPONENT_KEY);
     when(issue.ruleKey()).thenReturn(RuleKey.of("pmd", "CloseResource"));
 
-    Multimap<Integer, String> suppressWarningLines = HashMultimap.create();
-    addWarning(suppressWarningLines, "pmd:OtherIssue", 12, 16);
+    SuppressWarningsIndex suppressWarnings = new SuppressWarningsIndex();
+    suppressWarnings.add(12, 16, Collections.singleton("pmd:OtherIssue"));
 
-    filter.addComponent(COMPONENT_KEY, suppressWarningLines);
+    filter.addComponent(COMPONENT_KEY, suppressWarnings);
 
     // issue on line covered by @SuppressWarnings, but different from the one explicitly mentioned
     when(issue.line()).thenReturn(15);
@@ -126,10 +127,10 @@ public class SuppressWarningsFilterTest {
     when(issue.componentKey()).thenReturn(COMPONENT_KEY);
     when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S1309"));
 
-    Multimap<Integer, String> suppressWarningLines = HashMultimap.create();
-    addWarning(suppressWarningLines, "all", 12, 16);
+    SuppressWarningsIndex suppressWarnings = new SuppressWarningsIndex();
+    suppressWarnings.add(12, 16, Collections.singleton("all"));
 
-    filter.addComponent(COMPONENT_KEY, suppressWarningLines);
+    filter.addComponent(COMPONENT_KEY, suppressWarnings);
 
     // issue on line covered by @SuppressWarnings
     when(issue.line()).thenReturn(12);
@@ -142,11 +143,11 @@ public class SuppressWarningsFilterTest {
     when(issue.componentKey()).thenReturn(COMPONENT_KEY);
     when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S1309"));
 
-    Multimap<Integer, String> suppressWarningLines = HashMultimap.create();
-    addWarning(suppressWarningLines, "unchecked", 12, 16);
-    addWarning(suppressWarningLines, "cast", 13, 15);
+    SuppressWarningsIndex suppressWarnings = new SuppressWarningsIndex();
+    suppressWarnings.add(12, 16, Collections.singleton("unchecked"));
+    suppressWarnings.add(13, 15, Collections.singleton("cast"));
 
-    filter.addComponent(COMPONENT_KEY, suppressWarningLines);
+    filter.addComponent(COMPONENT_KEY, suppressWarnings);
 
     // issue on line covered by @SuppressWarnings
     when(issue.line()).thenReturn(12);
@@ -162,18 +163,36 @@ public class SuppressWarningsFilterTest {
     when(issue.componentKey()).thenReturn(COMPONENT_KEY);
     when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "firstIssue"));
 
-    Multimap<Integer, String> suppressWarningLines = HashMultimap.create();
-    addWarning(suppressWarningLines, "all", 12, 16);
+    SuppressWarningsIndex suppressWarnings = new SuppressWarningsIndex();
+    suppressWarnings.add(12, 16, Collections.singleton("all"));
 
-    filter.addComponent(COMPONENT_KEY, suppressWarningLines);
+    filter.addComponent(COMPONENT_KEY, suppressWarnings);
 
     when(issue.line()).thenReturn(12);
     assertFalse(filter.accept(issue, chain));
   }
 
-  private void addWarning(Multimap<Integer, String> multimap, String warning, int startLine, int endLine) {
-    for (int i = startLine; i <= endLine; i++) {
-      multimap.put(i, warning);
+  @Test
+  public void should_find_issues_in_nested_and_overlapping_intervals() {
+    Issue issue = mock(Issue.class);
+    when(issue.componentKey()).thenReturn(COMPONENT_KEY);
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "firstIssue"));
+
+    SuppressWarningsIndex suppressWarnings = new SuppressWarningsIndex();
+    suppressWarnings.add(30, 40, Collections.singleton("squid:firstIssue"));
+    suppressWarnings.add(1, 100, Collections.singleton("unchecked"));
+    suppressWarnings.add(20, 25, Arrays.asList("cast", "squid:firstIssue"));
+    suppressWarnings.add(24, 26, Collections.singleton("squid:otherIssue"));
+
+    filter.addComponent(COMPONENT_KEY, suppressWarnings);
+
+    for (int line : new int[] {20, 25, 30, 40}) {
+      when(issue.line()).thenReturn(line);
+      assertFalse(filter.accept(issue, chain));
+    }
+    for (int line : new int[] {1, 19, 26, 29, 41, 100}) {
+      when(issue.line()).thenReturn(line);
+      assertTrue(filter.accept(issue, chain));
     }
   }
 }
@@ -22,6 +22,7 @@ package org.sonar.java.resolve;
 import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.resolve.targets.Annotations;
 import org.sonar.java.resolve.targets.AnonymousClass;
 import org.sonar.java.resolve.targets.HasInnerClass;
@@ -29,11 +30,15 @@ import org.sonar.java.resolve.targets.InnerClassBeforeOuter;
 import org.sonar.java.resolve.targets.NamedClassWithinMethod;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.Fail.fail;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class BytecodeCompleterTest {
 
@@ -265,4 +270,15 @@ public class BytecodeCompleterTest {
   }
 
 
+  @Test
+  public void missing_classes_should_be_looked_up_once() {
+    SquidClassLoader classLoader = spy(new SquidClassLoader(Collections.<File>emptyList()));
+    BytecodeCompleter completer = new BytecodeCompleter(classLoader, new ParametrizedTypeCache(), null);
+    new Symbols(completer);
+
+    assertThat(completer.loadClass("java.util.Unknown").kind).isEqualTo(Symbol.ABSENT);
+    assertThat(completer.loadClass("java.util.Unknown").kind).isEqualTo(Symbol.ABSENT);
+    verify(classLoader, times(1)).getResource("java/util/Unknown.class");
+  }
+
 }
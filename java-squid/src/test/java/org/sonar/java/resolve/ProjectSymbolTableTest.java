@@ -0,0 +1,81 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.impl.Parser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ProjectSymbolTableTest {
+
+  private final Parser parser = JavaParser.createParser(Charsets.UTF_8);
+  private ProjectSymbolTable projectSymbolTable;
+
+  @Before
+  public void setUp() {
+    projectSymbolTable = new ProjectSymbolTable(Lists.newArrayList(new File("target/test-classes"), new File("target/classes")));
+  }
+
+  @After
+  public void tearDown() {
+    projectSymbolTable.done();
+  }
+
+  @Test
+  public void classpath_symbols_are_shared_between_files() {
+    Symbol first = fieldSymbol(semanticModel("package org.foo; class A { String field; }"));
+    Symbol second = fieldSymbol(semanticModel("package org.bar; class B { String field; }"));
+    assertThat(first).isNotSameAs(second);
+    assertThat(first.type).isSameAs(second.type);
+    assertThat(first.type).isSameAs(projectSymbolTable.symbols.stringType);
+  }
+
+  @Test
+  public void source_symbols_are_not_shared_between_files() {
+    Symbol first = fieldSymbol(semanticModel("package org.foo; class A { A field; }"));
+    Symbol second = fieldSymbol(semanticModel("package org.foo; class A { A field; }"));
+    assertThat(first.type.symbol).isSameAs(first.owner);
+    assertThat(second.type.symbol).isSameAs(second.owner);
+    assertThat(first.owner).isNotSameAs(second.owner);
+  }
+
+  private SemanticModel semanticModel(String source) {
+    return SemanticModel.createFor((CompilationUnitTree) parser.parse(source), projectSymbolTable);
+  }
+
+  private static Symbol fieldSymbol(SemanticModel semanticModel) {
+    for (Symbol symbol : semanticModel.getSymbolsTree().values()) {
+      if ("field".equals(symbol.name)) {
+        return symbol;
+      }
+    }
+    throw new IllegalArgumentException("Symbol not found");
+  }
+
+}
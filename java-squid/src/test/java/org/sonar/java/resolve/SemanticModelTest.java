@@ -0,0 +1,155 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.model.JavaTree;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class SemanticModelTest {
+
+  @Test
+  public void trees_should_be_associated_with_symbols_references_and_envs() {
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8)
+      .parse("class A { int field; void method() { field = 1; field++; } }");
+    SemanticModel semanticModel = SemanticModel.createFor(tree, ImmutableList.<File>of());
+    ClassTree classTree = (ClassTree) tree.types().get(0);
+    MethodTree methodTree = (MethodTree) classTree.members().get(1);
+    Symbol field = semanticModel.getSymbol(classTree.members().get(0));
+
+    assertThat(field.name).isEqualTo("field");
+    assertThat(semanticModel.getTree(field)).isSameAs(classTree.members().get(0));
+    List<IdentifierTree> identifiers = identifiers(methodTree.block(), "field");
+    assertThat(identifiers).hasSize(2);
+    assertThat(semanticModel.getUsages(field)).containsOnly(identifiers.toArray());
+    assertThat(semanticModel.getReference(identifiers.get(0))).isSameAs(field);
+
+    Resolve.Env methodEnv = semanticModel.getEnv(identifiers.get(0));
+    assertThat(methodEnv).isNotNull();
+    assertThat(methodEnv).isNotSameAs(semanticModel.getEnv(classTree));
+    assertThat(semanticModel.getEnclosingClass(identifiers.get(1))).isSameAs(semanticModel.getSymbol(classTree));
+    assertThat(semanticModel.getTree(semanticModel.getEnv(classTree))).isSameAs(classTree);
+    semanticModel.done();
+  }
+
+  @Test
+  public void unknown_trees_should_not_be_associated() {
+    SemanticModel semanticModel = new SemanticModel();
+    assertThat(semanticModel.getSymbol(mock(Tree.class))).isNull();
+    assertThat(semanticModel.getReference(mock(IdentifierTree.class))).isNull();
+    assertThat(semanticModel.getEnv(mock(JavaTree.class))).isNull();
+  }
+
+  @Test
+  public void env_should_be_inherited_from_closest_ancestor() {
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8).parse("class A { void method() { int a; } }");
+    SemanticModel semanticModel = new SemanticModel();
+    semanticModel.createParentLink((JavaTree) tree);
+    ClassTree classTree = (ClassTree) tree.types().get(0);
+    MethodTree methodTree = (MethodTree) classTree.members().get(0);
+    Tree statement = methodTree.block().body().get(0);
+    Resolve.Env methodEnv = new Resolve.Env();
+    Resolve.Env classEnv = new Resolve.Env();
+
+    semanticModel.associateEnv(methodTree, methodEnv);
+    semanticModel.associateEnv(classTree, classEnv);
+    assertThat(semanticModel.getEnv(tree)).isNull();
+    assertThat(semanticModel.getEnv(classTree.simpleName())).isSameAs(classEnv);
+    assertThat(semanticModel.getEnv(statement)).isSameAs(methodEnv);
+    semanticModel.computeEnclosingEnvs();
+    assertThat(semanticModel.getEnv(tree)).isNull();
+    assertThat(semanticModel.getEnv(classTree.simpleName())).isSameAs(classEnv);
+    assertThat(semanticModel.getEnv(statement)).isSameAs(methodEnv);
+
+    Resolve.Env otherClassEnv = new Resolve.Env();
+    semanticModel.associateEnv(classTree, otherClassEnv);
+    assertThat(semanticModel.getEnv(classTree.simpleName())).isSameAs(otherClassEnv);
+    assertThat(semanticModel.getEnv(statement)).isSameAs(methodEnv);
+    assertThat(semanticModel.getTree(otherClassEnv)).isSameAs(classTree);
+    assertThat(semanticModel.getTree(classEnv)).isNull();
+    semanticModel.computeEnclosingEnvs();
+    assertThat(semanticModel.getEnv(classTree.simpleName())).isSameAs(otherClassEnv);
+    assertThat(semanticModel.getEnv(statement)).isSameAs(methodEnv);
+  }
+
+  @Test
+  public void symbol_should_be_associated_again_with_same_tree() {
+    SemanticModel semanticModel = new SemanticModel();
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8).parse("class A {}");
+    Tree classTree = tree.types().get(0);
+    Symbol symbol = new Symbol(0, 0, "symbol", null);
+    Symbol otherSymbol = new Symbol(0, 0, "other", null);
+    semanticModel.associateSymbol(classTree, symbol);
+    semanticModel.associateSymbol(classTree, symbol);
+    assertThat(semanticModel.getSymbol(classTree)).isSameAs(symbol);
+
+    semanticModel.associateSymbol(classTree, otherSymbol);
+    assertThat(semanticModel.getSymbol(classTree)).isSameAs(otherSymbol);
+    assertThat(semanticModel.getTree(otherSymbol)).isSameAs(classTree);
+    assertThat(semanticModel.getTree(symbol)).isNull();
+    assertThat(semanticModel.getSymbolsTree()).hasSize(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void symbol_should_not_be_associated_with_two_trees() {
+    SemanticModel semanticModel = new SemanticModel();
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8).parse("class A {} class B {}");
+    Symbol symbol = new Symbol(0, 0, "symbol", null);
+    semanticModel.associateSymbol(tree.types().get(0), symbol);
+    semanticModel.associateSymbol(tree.types().get(1), symbol);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void env_should_not_be_associated_with_two_trees() {
+    SemanticModel semanticModel = new SemanticModel();
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8).parse("class A {} class B {}");
+    Resolve.Env env = new Resolve.Env();
+    semanticModel.associateEnv(tree.types().get(0), env);
+    semanticModel.associateEnv(tree.types().get(1), env);
+  }
+
+  private static List<IdentifierTree> identifiers(Tree tree, final String name) {
+    final ImmutableList.Builder<IdentifierTree> result = ImmutableList.builder();
+    tree.accept(new BaseTreeVisitor() {
+      @Override
+      public void visitIdentifier(IdentifierTree tree) {
+        if (name.equals(tree.name())) {
+          result.add(tree);
+        }
+      }
+    });
+    return result.build();
+  }
+
+}
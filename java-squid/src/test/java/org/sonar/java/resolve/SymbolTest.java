@@ -19,6 +19,7 @@
  */
 package org.sonar.java.resolve;
 
+import com.google.common.collect.ImmutableList;
 import org.junit.Test;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -147,4 +148,57 @@ public class SymbolTest {
     assertThat(enumeration.isAbstract()).isFalse();
     assertThat(enumeration.isStatic()).isFalse();
   }
+
+  @Test
+  public void super_types_should_be_remembered_once_hierarchy_is_complete() {
+    Symbol.PackageSymbol packageSymbol = new Symbol.PackageSymbol("p", null);
+    Symbol.TypeSymbol superInterface = new Symbol.TypeSymbol(Flags.INTERFACE, "I", packageSymbol);
+    ((Type.ClassType) superInterface.type).interfaces = ImmutableList.of();
+    Symbol.TypeSymbol superClass = new Symbol.TypeSymbol(0, "A", packageSymbol);
+    ((Type.ClassType) superClass.type).interfaces = ImmutableList.<Type>of(superInterface.type);
+    Symbol.TypeSymbol typeSymbol = new Symbol.TypeSymbol(0, "B", packageSymbol);
+    ((Type.ClassType) typeSymbol.type).supertype = superClass.type;
+    ((Type.ClassType) typeSymbol.type).interfaces = ImmutableList.of();
+
+    assertThat(typeSymbol.superTypes()).containsOnly(superClass.type, superInterface.type);
+    assertThat(typeSymbol.superTypes()).isSameAs(typeSymbol.superTypes());
+    assertThat(typeSymbol.erasedSuperTypes()).isSameAs(typeSymbol.erasedSuperTypes());
+    assertThat(typeSymbol.superTypeNames()).containsOnly("p.A", "p.I");
+    assertThat(typeSymbol.type.isSubtypeOf("p.I")).isTrue();
+    assertThat(typeSymbol.type.isSubtypeOf("p.B")).isTrue();
+    assertThat(typeSymbol.type.isSubtypeOf("p.C")).isFalse();
+    assertThat(new Types().isSubtype(typeSymbol.type, superInterface.type)).isTrue();
+  }
+
+  @Test
+  public void super_types_should_not_be_remembered_during_completion() {
+    Symbol.PackageSymbol packageSymbol = new Symbol.PackageSymbol("p", null);
+    final Symbol.TypeSymbol superClass = new Symbol.TypeSymbol(0, "A", packageSymbol);
+    ((Type.ClassType) superClass.type).interfaces = ImmutableList.of();
+    final Symbol.TypeSymbol typeSymbol = new Symbol.TypeSymbol(0, "B", packageSymbol);
+    ((Type.ClassType) typeSymbol.type).interfaces = ImmutableList.of();
+    typeSymbol.completer = new Symbol.Completer() {
+      @Override
+      public void complete(Symbol symbol) {
+        assertThat(typeSymbol.superTypes()).isEmpty();
+        ((Type.ClassType) typeSymbol.type).supertype = superClass.type;
+      }
+    };
+
+    assertThat(typeSymbol.superTypes()).containsOnly(superClass.type);
+    assertThat(typeSymbol.superTypes()).isSameAs(typeSymbol.superTypes());
+  }
+
+  @Test
+  public void super_types_of_anonymous_classes_should_not_be_remembered() {
+    Symbol.PackageSymbol packageSymbol = new Symbol.PackageSymbol("p", null);
+    Symbol.TypeSymbol superClass = new Symbol.TypeSymbol(0, "A", packageSymbol);
+    ((Type.ClassType) superClass.type).interfaces = ImmutableList.of();
+    Symbol.TypeSymbol anonymous = new Symbol.TypeSymbol(0, "", packageSymbol);
+    ((Type.ClassType) anonymous.type).interfaces = ImmutableList.of();
+
+    assertThat(anonymous.superTypes()).isEmpty();
+    ((Type.ClassType) anonymous.type).supertype = superClass.type;
+    assertThat(anonymous.superTypes()).containsOnly(superClass.type);
+  }
 }
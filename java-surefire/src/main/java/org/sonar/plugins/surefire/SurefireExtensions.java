@@ -21,6 +21,7 @@ package org.sonar.plugins.surefire;
 
 import com.google.common.collect.ImmutableList;
 import org.sonar.api.CoreProperties;
+import org.sonar.api.PropertyType;
 import org.sonar.api.config.PropertyDefinition;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.plugins.surefire.api.SurefireUtils;
@@ -41,6 +42,25 @@ public final class SurefireExtensions {
             .category(CoreProperties.CATEGORY_JAVA)
             .subCategory("JUnit")
             .build(),
+        PropertyDefinition.builder(SurefireUtils.SUREFIRE_THREADS_PROPERTY)
+            .defaultValue("1")
+            .name("JUnit Reports Parsing Threads")
+            .description("Number of threads parsing the JUnit report files.")
+            .onQualifiers(Qualifiers.PROJECT)
+            .category(CoreProperties.CATEGORY_JAVA)
+            .subCategory("JUnit")
+            .type(PropertyType.INTEGER)
+            .build(),
+        PropertyDefinition.builder(SurefireUtils.SUREFIRE_STACK_TRACE_MAX_LENGTH_PROPERTY)
+            .defaultValue("0")
+            .name("JUnit Stack Traces Maximum Length")
+            .description("Number of characters kept from the stack trace of each failed test, 0 to keep stack traces entirely. "
+              + "When set, identical stack traces are only stored once.")
+            .onQualifiers(Qualifiers.PROJECT)
+            .category(CoreProperties.CATEGORY_JAVA)
+            .subCategory("JUnit")
+            .type(PropertyType.INTEGER)
+            .build(),
 
         SurefireSensor.class,
         SurefireJavaParser.class);
@@ -19,6 +19,11 @@
  */
 package org.sonar.plugins.surefire;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,7 +47,14 @@ import org.sonar.plugins.surefire.data.UnitTestResult;
 import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.FilenameFilter;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @since 2.4
@@ -60,9 +72,22 @@ public class SurefireJavaParser implements BatchExtension {
 
 
   public void collect(SensorContext context, File reportsDir) {
+    collect(context, reportsDir, 1);
+  }
+
+  public void collect(SensorContext context, File reportsDir, int threads) {
+    collect(context, reportsDir, threads, 0);
+  }
+
+  /**
+   * @param threads number of threads parsing reports
+   * @param stackTraceMaxLength number of characters kept from stack traces of failed tests, 0 to keep them entirely
+   */
+  public void collect(SensorContext context, File reportsDir, int threads, int stackTraceMaxLength) {
+    Preconditions.checkArgument(threads > 0, "At least one thread is required");
     File[] xmlFiles = getReports(reportsDir);
     if (xmlFiles.length > 0) {
-      parseFiles(context, xmlFiles);
+      parseFiles(context, xmlFiles, threads, stackTraceMaxLength);
     }
   }
 
@@ -90,32 +115,68 @@ public class SurefireJavaParser implements BatchExtension {
     });
   }
 
-  private void parseFiles(SensorContext context, File[] reports) {
-    UnitTestIndex index = new UnitTestIndex();
-    parseFiles(reports, index);
-    sanitize(index);
+  private void parseFiles(SensorContext context, File[] reports, int threads, int stackTraceMaxLength) {
+    UnitTestIndex index = parseFiles(reports, threads, stackTraceMaxLength);
     save(index, context);
   }
 
-  private void parseFiles(File[] reports, UnitTestIndex index) {
-    SurefireStaxHandler staxParser = new SurefireStaxHandler(index);
-    StaxParser parser = new StaxParser(staxParser, false);
-    for (File report : reports) {
-      try {
-        parser.parse(report);
-      } catch (XMLStreamException e) {
-        throw new SonarException("Fail to parse the Surefire report: " + report, e);
+  /**
+   * Reports are split in consecutive chunks, each one parsed into its own index. Indexes are then merged in the order of
+   * the reports.
+   */
+  private static UnitTestIndex parseFiles(File[] reports, int threads, int stackTraceMaxLength) {
+    int chunks = threads == 1 ? 1 : Math.min(reports.length, threads * 4);
+    ExecutorService executor = threads == 1 ? MoreExecutors.sameThreadExecutor()
+      : Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("surefire-parser-%d").setDaemon(true).build());
+    try {
+      List<Future<UnitTestIndex>> shards = Lists.newArrayList();
+      for (int i = 0; i < chunks; i++) {
+        shards.add(executor.submit(parseFilesTask(Arrays.copyOfRange(reports, i * reports.length / chunks, (i + 1) * reports.length / chunks), stackTraceMaxLength)));
+      }
+      UnitTestIndex index = new UnitTestIndex();
+      for (Future<UnitTestIndex> shard : shards) {
+        merge(getShard(shard), index);
       }
+      return index;
+    } finally {
+      executor.shutdownNow();
     }
   }
 
-  private void sanitize(UnitTestIndex index) {
-    for (String classname : index.getClassnames()) {
-      if (StringUtils.contains(classname, "$")) {
-        // Surefire reports classes whereas sonar supports files
-        String parentClassName = StringUtils.substringBefore(classname, "$");
-        index.merge(classname, parentClassName);
+  private static Callable<UnitTestIndex> parseFilesTask(final File[] reports, final int stackTraceMaxLength) {
+    return new Callable<UnitTestIndex>() {
+      @Override
+      public UnitTestIndex call() {
+        UnitTestIndex index = new UnitTestIndex();
+        StaxParser parser = new StaxParser(new SurefireStaxHandler(index, stackTraceMaxLength), false);
+        for (File report : reports) {
+          try {
+            parser.parse(report);
+          } catch (XMLStreamException e) {
+            throw new SonarException("Fail to parse the Surefire report: " + report, e);
+          }
+        }
+        return index;
       }
+    };
+  }
+
+  private static UnitTestIndex getShard(Future<UnitTestIndex> shard) {
+    try {
+      return shard.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private static void merge(UnitTestIndex shard, UnitTestIndex index) {
+    for (Map.Entry<String, UnitTestClassReport> entry : shard.getIndexByClassname().entrySet()) {
+      // Surefire reports classes whereas sonar supports files
+      String classname = StringUtils.substringBefore(entry.getKey(), "$");
+      index.index(classname).add(entry.getValue());
     }
   }
 
@@ -66,7 +66,8 @@ public class SurefireSensor implements Sensor {
 
   protected void collect(SensorContext context, File reportsDir) {
     LOGGER.info("parsing {}", reportsDir);
-    surefireJavaParser.collect(context, reportsDir);
+    surefireJavaParser.collect(context, reportsDir, Math.max(1, settings.getInt(SurefireUtils.SUREFIRE_THREADS_PROPERTY)),
+      Math.max(0, settings.getInt(SurefireUtils.SUREFIRE_STACK_TRACE_MAX_LENGTH_PROPERTY)));
   }
 
   @Override
@@ -32,6 +32,8 @@ import java.io.File;
 public final class SurefireUtils {
 
   public static final String SUREFIRE_REPORTS_PATH_PROPERTY = "sonar.junit.reportsPath";
+  public static final String SUREFIRE_THREADS_PROPERTY = "sonar.junit.threads";
+  public static final String SUREFIRE_STACK_TRACE_MAX_LENGTH_PROPERTY = "sonar.junit.stackTraceMaxLength";
 
   public static File getReportsDirectory(Settings settings, Project project) {
     File dir = getReportsDirectoryFromProperty(settings, project);
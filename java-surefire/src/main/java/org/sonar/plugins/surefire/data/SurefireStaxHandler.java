@@ -19,6 +19,9 @@
  */
 package org.sonar.plugins.surefire.data;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.staxmate.in.ElementFilter;
 import org.codehaus.staxmate.in.SMEvent;
@@ -33,10 +36,28 @@ import java.util.Locale;
 
 public class SurefireStaxHandler implements XmlStreamHandler {
 
+  private static final String TRUNCATED_STACK_TRACE_SUFFIX = "\n...";
+
+  /**
+   * Identical stack traces, frequent when a flaky dependency fails many tests, are only kept once.
+   */
+  private static final Interner<String> STACK_TRACES = Interners.newWeakInterner();
+
   private final UnitTestIndex index;
+  private final int stackTraceMaxLength;
 
   public SurefireStaxHandler(UnitTestIndex index) {
+    this(index, 0);
+  }
+
+  /**
+   * @param stackTraceMaxLength number of characters kept from each stack trace, identical stack traces sharing the same
+   * string, or 0 to keep stack traces as reported
+   */
+  public SurefireStaxHandler(UnitTestIndex index, int stackTraceMaxLength) {
+    Preconditions.checkArgument(stackTraceMaxLength >= 0, "Maximum length of stack traces can not be negative");
     this.index = index;
+    this.stackTraceMaxLength = stackTraceMaxLength;
   }
 
   @Override
@@ -75,7 +96,19 @@ public class SurefireStaxHandler implements XmlStreamHandler {
   private void setStackAndMessage(UnitTestResult result, SMInputCursor stackAndMessageCursor) throws XMLStreamException {
     result.setMessage(stackAndMessageCursor.getAttrValue("message"));
     String stack = stackAndMessageCursor.collectDescendantText();
-    result.setStackTrace(stack);
+    result.setStackTrace(stackTraceMaxLength > 0 ? truncate(stack) : stack);
+  }
+
+  private String truncate(String stack) {
+    String result = stack;
+    if (stack.length() > stackTraceMaxLength) {
+      // copied rather than substring, so that the full stack trace can be garbage collected
+      result = new StringBuilder(stackTraceMaxLength + TRUNCATED_STACK_TRACE_SUFFIX.length())
+        .append(stack, 0, stackTraceMaxLength)
+        .append(TRUNCATED_STACK_TRACE_SUFFIX)
+        .toString();
+    }
+    return STACK_TRACES.intern(result);
   }
 
   private UnitTestResult parseTestResult(SMInputCursor testCaseCursor) throws XMLStreamException {
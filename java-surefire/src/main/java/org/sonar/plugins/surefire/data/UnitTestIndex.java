@@ -33,7 +33,7 @@ public class UnitTestIndex {
   private Map<String, UnitTestClassReport> indexByClassname;
 
   public UnitTestIndex() {
-    this.indexByClassname = Maps.newHashMap();
+    this.indexByClassname = Maps.newLinkedHashMap();
   }
 
   public UnitTestClassReport index(String classname) {
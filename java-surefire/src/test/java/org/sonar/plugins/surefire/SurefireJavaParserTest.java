@@ -195,6 +195,29 @@ public class SurefireJavaParserTest {
         any(Metric.class), anyDouble());
   }
 
+  @Test
+  public void should_aggregate_reports_parsed_by_several_threads() throws URISyntaxException {
+    SensorContext context = mockContext();
+
+    parser.collect(context, getDir("multipleReports"), 2);
+
+    verify(context, times(6)).saveMeasure(argThat(new IsResource(Scopes.FILE, Qualifiers.FILE)), eq(CoreMetrics.SKIPPED_TESTS), eq(0.0));
+    verify(context, times(6)).saveMeasure(argThat(new IsResource(Scopes.FILE, Qualifiers.FILE)), eq(CoreMetrics.TESTS), anyDouble());
+    verify(context, times(6)).saveMeasure(argThat(new IsResource(Scopes.FILE, Qualifiers.FILE)), eq(CoreMetrics.TEST_ERRORS), anyDouble());
+  }
+
+  @Test
+  public void should_merge_inner_classes_parsed_by_several_threads() throws URISyntaxException {
+    SensorContext context = mockContext();
+
+    parser.collect(context, getDir("nestedInnerClasses"), 3);
+
+    verify(context).saveMeasure(
+        argThat(new IsResource(Scopes.FILE, Qualifiers.FILE, "org.sonar.plugins.surefire.NestedInnerTest")),
+        eq(CoreMetrics.TESTS),
+        eq(3.0));
+  }
+
   @Test
   public void shouldMergeNestedInnerClasses() throws URISyntaxException {
 
@@ -28,6 +28,7 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThat;
 
@@ -114,9 +115,30 @@ public class SurefireStaxHandlerTest {
     assertThat(index.get("org.sonar.SecondTest").getTests(), is(4L));
   }
 
+  @Test
+  public void shouldTruncateStackTraces() throws XMLStreamException {
+    parse("errorsAndFailures.xml");
+    String failureStackTrace = index.get("org.sonar.Foo").getResults().get(0).getStackTrace();
+    assertThat(failureStackTrace.length() > 20, is(true));
+
+    index = new UnitTestIndex();
+    parse("errorsAndFailures.xml", 20);
+    String truncatedStackTrace = index.get("org.sonar.Foo").getResults().get(0).getStackTrace();
+    assertThat(truncatedStackTrace, is(failureStackTrace.substring(0, 20) + "\n..."));
+
+    UnitTestIndex otherIndex = index;
+    index = new UnitTestIndex();
+    parse("errorsAndFailures.xml", 20);
+    assertThat(index.get("org.sonar.Foo").getResults().get(0).getStackTrace(), sameInstance(otherIndex.get("org.sonar.Foo").getResults().get(0).getStackTrace()));
+  }
+
   private void parse(String path) throws XMLStreamException {
+    parse(path, 0);
+  }
+
+  private void parse(String path, int stackTraceMaxLength) throws XMLStreamException {
     File xml = TestUtils.getResource(getClass(), path);
-    SurefireStaxHandler staxParser = new SurefireStaxHandler(index);
+    SurefireStaxHandler staxParser = new SurefireStaxHandler(index, stackTraceMaxLength);
     StaxParser parser = new StaxParser(staxParser, false);
     parser.parse(xml);
   }
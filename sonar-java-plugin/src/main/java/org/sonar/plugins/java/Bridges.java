@@ -56,6 +56,7 @@ public class Bridges {
     //Design
     if (!skipPackageDesignAnalysis && squid.isBytecodeScanned()) {
       DesignBridge designBridge = new DesignBridge(context, squid.getGraph(), resourceMapping, resourcePerspectives);
+      designBridge.setThreads(Math.max(1, settings.getInt(JavaPlugin.DESIGN_THREADS_PROPERTY)));
       designBridge.saveDesign(project);
     }
     //Report Issues
@@ -43,6 +43,16 @@ public class JavaPlugin extends SonarPlugin {
   public static final String SQUID_ANALYSE_ACCESSORS_PROPERTY = "sonar.squid.analyse.property.accessors";
   public static final boolean SQUID_ANALYSE_ACCESSORS_DEFAULT_VALUE = true;
 
+  public static final String PARSING_THREADS_PROPERTY = "sonar.java.parsingThreads";
+  public static final int PARSING_THREADS_DEFAULT_VALUE = 1;
+
+  public static final String DESIGN_THREADS_PROPERTY = "sonar.java.designThreads";
+  public static final int DESIGN_THREADS_DEFAULT_VALUE = 1;
+
+  public static final String INCREMENTAL_CACHE_PROPERTY = "sonar.java.incrementalCache";
+
+  public static final String EXECUTION_TIME_REPORT_PROPERTY = "sonar.java.executionTimeReport";
+
   @Override
   public List getExtensions() {
     ImmutableList.Builder<Object> builder = ImmutableList.builder();
@@ -72,6 +82,45 @@ public class JavaPlugin extends SonarPlugin {
             .type(PropertyType.BOOLEAN)
             .onQualifiers(Qualifiers.PROJECT)
             .build(),
+        PropertyDefinition.builder(JavaPlugin.PARSING_THREADS_PROPERTY)
+            .defaultValue(JavaPlugin.PARSING_THREADS_DEFAULT_VALUE + "")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Parsing threads")
+            .description("Number of threads used to parse Java files and to read class files. At most one thread per processor parses files. " +
+                "Only parsing, which takes about a third of the analysis of files, runs concurrently: rules are still executed on files " +
+                "one after another, so that results do not depend on this number.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.DESIGN_THREADS_PROPERTY)
+            .defaultValue(JavaPlugin.DESIGN_THREADS_DEFAULT_VALUE + "")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Design threads")
+            .description("Number of threads used to analyze the design of packages. " +
+                "Results are still saved one package after another, so that they do not depend on this number.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.INCREMENTAL_CACHE_PROPERTY)
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Incremental cache")
+            .description("Path of the file where results of rules are kept between analyses, relative to the base directory of the module. " +
+                "When set, rules are not executed again on files which did not change, as long as rules, libraries and signatures of compiled " +
+                "classes of the project do not change. Files are still parsed and measured. Leave empty to execute rules on all files.")
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.EXECUTION_TIME_REPORT_PROPERTY)
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Execution time report")
+            .description("Path of the JSON file where execution times of analysis phases, rules and other visitors are reported, " +
+                "along with the slowest files, relative to the base directory of the module. " +
+                "Measuring those times slows down analysis: leave empty unless looking for what slows it down.")
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
         PropertyDefinition.builder(CoreProperties.DESIGN_SKIP_DESIGN_PROPERTY)
             .defaultValue(CoreProperties.DESIGN_SKIP_DESIGN_DEFAULT_VALUE + "")
             .category(JAVA_CATEGORY)
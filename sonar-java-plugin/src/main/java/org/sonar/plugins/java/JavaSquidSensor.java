@@ -19,7 +19,10 @@
  */
 package org.sonar.plugins.java;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.DependedUpon;
 import org.sonar.api.batch.DependsUpon;
@@ -34,27 +37,37 @@ import org.sonar.api.checks.NoSonarFilter;
 import org.sonar.api.config.Settings;
 import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.Project;
+import org.sonar.api.rules.ActiveRule;
+import org.sonar.api.rules.ActiveRuleParam;
 import org.sonar.java.DefaultJavaResourceLocator;
+import org.sonar.java.ExecutionTimeReport;
+import org.sonar.java.IncrementalCache;
 import org.sonar.java.JavaClasspath;
 import org.sonar.java.JavaConfiguration;
 import org.sonar.java.JavaSquid;
 import org.sonar.java.Measurer;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.api.JavaUtils;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.checks.CheckList;
+import org.sonar.java.checks.PackageInfoCheck;
 import org.sonar.squidbridge.api.CodeVisitor;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 @Phase(name = Phase.Name.PRE)
 @DependsUpon(JavaUtils.BARRIER_BEFORE_SQUID)
 @DependedUpon(value = JavaUtils.BARRIER_AFTER_SQUID)
 public class JavaSquidSensor implements Sensor {
 
+  private static final int SLOWEST_FILES_COUNT = 20;
+
   private final JavaClasspath javaClasspath;
   private final SonarComponents sonarComponents;
   private final FileSystem fs;
@@ -87,9 +100,31 @@ public class JavaSquidSensor implements Sensor {
     Checks<CodeVisitor> checks = checkFactory.<CodeVisitor>create(CheckList.REPOSITORY_KEY).addAnnotatedChecks(CheckList.getChecks());
     Collection<CodeVisitor> checkList = checks.all();
     JavaConfiguration configuration = createConfiguration();
+    IncrementalCache incrementalCache = createIncrementalCache(configuration);
+    configuration.setIncrementalCache(incrementalCache);
+    ExecutionTimeReport executionTimeReport = createExecutionTimeReport();
+    configuration.setExecutionTimeReport(executionTimeReport);
     Measurer measurer = new Measurer(fs, context, configuration.separatesAccessorsFromMethods());
     JavaSquid squid = new JavaSquid(configuration, sonarComponents, measurer, javaResourceLocator, checkList.toArray(new CodeVisitor[checkList.size()]));
     squid.scan(getSourceFiles(), getTestFiles(), getBytecodeFiles());
+    if (incrementalCache != null) {
+      incrementalCache.save();
+    }
+    if (executionTimeReport == null) {
+      saveBridges(squid, context, project, checks);
+      return;
+    }
+    ExecutionTimeReport.Timer bridgesTimer = executionTimeReport.timer(ExecutionTimeReport.PHASE, "Save of measures, issues and design");
+    bridgesTimer.start();
+    try {
+      saveBridges(squid, context, project, checks);
+    } finally {
+      bridgesTimer.stop();
+      executionTimeReport.save();
+    }
+  }
+
+  private void saveBridges(JavaSquid squid, SensorContext context, Project project, Checks<CodeVisitor> checks) {
     new Bridges(squid, settings).save(context, project, checks, javaResourceLocator.getResourceMapping(),
       sonarComponents.getResourcePerspectives(), noSonarFilter, profile);
   }
@@ -122,9 +157,90 @@ public class JavaSquidSensor implements Sensor {
     Charset charset = fs.encoding();
     JavaConfiguration conf = new JavaConfiguration(charset);
     conf.setSeparateAccessorsFromMethods(analyzePropertyAccessors);
+    conf.setParsingThreads(Math.max(1, settings.getInt(JavaPlugin.PARSING_THREADS_PROPERTY)));
     return conf;
   }
 
+  @CheckForNull
+  private IncrementalCache createIncrementalCache(JavaConfiguration conf) {
+    File file = getFile(JavaPlugin.INCREMENTAL_CACHE_PROPERTY);
+    if (file == null) {
+      return null;
+    }
+    // PackageInfoCheck reports issues on directories, so must see all the files
+    return new IncrementalCache(file, fingerprint(conf, analyzerVersion()), Collections.<Class<?>>singleton(PackageInfoCheck.class));
+  }
+
+  @CheckForNull
+  private ExecutionTimeReport createExecutionTimeReport() {
+    File file = getFile(JavaPlugin.EXECUTION_TIME_REPORT_PROPERTY);
+    return file == null ? null : new ExecutionTimeReport(file, SLOWEST_FILES_COUNT);
+  }
+
+  /**
+   * @return file given by property, relative to base directory of module, or null if property is not set
+   */
+  @CheckForNull
+  private File getFile(String property) {
+    String path = settings.getString(property);
+    if (StringUtils.isBlank(path)) {
+      return null;
+    }
+    File file = new File(path);
+    if (!file.isAbsolute()) {
+      file = new File(fs.baseDir(), path);
+    }
+    return file;
+  }
+
+  /**
+   * Plugin, rules and semantic analysis are identified by the code they are loaded from, since the plugin manifest does not
+   * change between builds of a same snapshot version.
+   */
+  private static String analyzerVersion() {
+    return IncrementalCache.hashCodeSource(JavaSquidSensor.class) + ' '
+      + IncrementalCache.hashCodeSource(CheckList.class) + ' '
+      + IncrementalCache.hashCodeSource(JavaSquid.class);
+  }
+
+  /**
+   * Cached results of rules are valid as long as version of analyzer, configuration, active rules, libraries and signatures of
+   * classes of the project do not change.
+   */
+  @VisibleForTesting
+  String fingerprint(JavaConfiguration conf, String analyzerVersion) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(analyzerVersion).append('\n');
+    sb.append(conf.getCharset()).append(' ').append(conf.separatesAccessorsFromMethods()).append('\n');
+    List<String> rules = Lists.newArrayList();
+    for (ActiveRule activeRule : profile.getActiveRules()) {
+      List<String> params = Lists.newArrayList();
+      for (ActiveRuleParam param : activeRule.getActiveRuleParams()) {
+        params.add(param.getKey() + "=" + param.getValue());
+      }
+      Collections.sort(params);
+      rules.add(activeRule.getRepositoryKey() + ":" + activeRule.getRuleKey() + " " + params);
+    }
+    Collections.sort(rules);
+    for (String rule : rules) {
+      sb.append(rule).append('\n');
+    }
+    Set<File> elements = Sets.newLinkedHashSet(javaClasspath.getElements());
+    elements.addAll(javaClasspath.getBinaryDirs());
+    SquidClassLoader classLoader = javaClasspath.getClassLoader();
+    for (File element : elements) {
+      sb.append(element.getAbsolutePath());
+      if (element.isFile()) {
+        sb.append(' ').append(element.length()).append(' ').append(element.lastModified());
+      } else {
+        // rules see other classes of the project through their signatures
+        sb.append(' ').append(IncrementalCache.hashClassSignatures(element, classLoader.getClassNames(element)));
+      }
+      sb.append('\n');
+    }
+    return IncrementalCache.hash(sb.toString());
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName();
@@ -19,7 +19,11 @@
  */
 package org.sonar.plugins.java.bridges;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.SensorContext;
@@ -33,6 +37,7 @@ import org.sonar.api.measures.PersistenceMode;
 import org.sonar.api.resources.Directory;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.utils.SonarException;
 import org.sonar.api.utils.TimeProfiler;
 import org.sonar.graph.Cycle;
 import org.sonar.graph.DirectedGraph;
@@ -45,17 +50,27 @@ import org.sonar.java.bytecode.visitor.ResourceMapping;
 import org.sonar.java.checks.CycleBetweenPackagesCheck;
 
 import java.util.Collection;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class DesignBridge {
 
   private static final Logger LOG = LoggerFactory.getLogger(DesignBridge.class);
 
+  private static final int PENDING_PACKAGES_PER_THREAD = 2;
+
   private final SensorContext context;
   private final DirectedGraph<Resource, Dependency> graph;
   private final ResourceMapping resourceMapping;
   private final ResourcePerspectives resourcePerspectives;
+  private int threads = 1;
 
   public DesignBridge(SensorContext context, DirectedGraph<Resource, Dependency> graph, ResourceMapping resourceMapping, ResourcePerspectives resourcePerspectives) {
     this.context = context;
@@ -64,6 +79,14 @@ public class DesignBridge {
     this.resourcePerspectives = resourcePerspectives;
   }
 
+  /**
+   * @param threads number of threads analyzing the design of packages
+   */
+  public void setThreads(int threads) {
+    Preconditions.checkArgument(threads > 0, "At least one thread is required");
+    this.threads = threads;
+  }
+
   public void saveDesign(Project sonarProject) {
     Collection<Resource> directories = resourceMapping.directories();
     TimeProfiler profiler = new TimeProfiler(LOG).start("Package design analysis");
@@ -89,8 +112,36 @@ public class DesignBridge {
 
     profiler.stop();
 
-    for (Resource sonarPackage : directories) {
-      onPackage(sonarPackage);
+    savePackagesDesign(directories);
+  }
+
+  /**
+   * Design of packages is analyzed concurrently, as it only reads the graph, but it is saved in the order of packages.
+   * DSM of a package might be large, so only a few packages per thread are analyzed ahead of the one being saved,
+   * and none when there is a single thread.
+   */
+  private void savePackagesDesign(Collection<Resource> directories) {
+    ExecutorService executor = threads == 1 ? MoreExecutors.sameThreadExecutor()
+      : Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("package-design-%d").setDaemon(true).build());
+    int maxPending = threads == 1 ? 0 : (threads * PENDING_PACKAGES_PER_THREAD);
+    Queue<Resource> packages = new LinkedList<Resource>();
+    Queue<Future<PackageDesign>> designs = new LinkedList<Future<PackageDesign>>();
+    try {
+      for (Resource sonarPackage : directories) {
+        Collection<Resource> squidFiles = getResourcesForDirectory(sonarPackage);
+        if (!squidFiles.isEmpty()) {
+          packages.add(sonarPackage);
+          designs.add(executor.submit(analyzePackageTask(squidFiles)));
+          if (designs.size() > maxPending) {
+            savePackageDesign(packages.poll(), getDesign(designs.poll()));
+          }
+        }
+      }
+      while (!designs.isEmpty()) {
+        savePackageDesign(packages.poll(), getDesign(designs.poll()));
+      }
+    } finally {
+      executor.shutdownNow();
     }
   }
 
@@ -100,25 +151,50 @@ public class DesignBridge {
     }
   }
 
-  private void onPackage(Resource sonarPackage) {
-    Collection<Resource> squidFiles = getResourcesForDirectory(sonarPackage);
-    if (squidFiles != null && !squidFiles.isEmpty()) {
-      IncrementalCyclesAndFESSolver<Resource> cycleDetector = new IncrementalCyclesAndFESSolver<Resource>(graph, squidFiles);
-      Set<Cycle> cycles = cycleDetector.getCycles();
-
-      MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(cycles);
-      Set<Edge> feedbackEdges = solver.getEdges();
-      int tangles = solver.getWeightOfFeedbackEdgeSet();
-
-      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_CYCLES, cycles.size());
-      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_FEEDBACK_EDGES, feedbackEdges.size());
-      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_TANGLES, tangles);
-      savePositiveMeasure(sonarPackage, CoreMetrics.FILE_EDGES_WEIGHT, getEdgesWeight(squidFiles));
-      String dsmJson = serializeDsm(graph, squidFiles, feedbackEdges);
-      context.saveMeasure(sonarPackage, new Measure(CoreMetrics.DEPENDENCY_MATRIX, dsmJson));
+  private Callable<PackageDesign> analyzePackageTask(final Collection<Resource> squidFiles) {
+    return new Callable<PackageDesign>() {
+      @Override
+      public PackageDesign call() {
+        return analyzePackage(squidFiles);
+      }
+    };
+  }
+
+  private PackageDesign analyzePackage(Collection<Resource> squidFiles) {
+    IncrementalCyclesAndFESSolver<Resource> cycleDetector = new IncrementalCyclesAndFESSolver<Resource>(graph, squidFiles);
+    Set<Cycle> cycles = cycleDetector.getCycles();
+
+    MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(cycles);
+    Set<Edge> feedbackEdges = solver.getEdges();
+
+    PackageDesign design = new PackageDesign();
+    design.cycles = cycles.size();
+    design.feedbackEdges = feedbackEdges.size();
+    design.tangles = solver.getWeightOfFeedbackEdgeSet();
+    design.edgesWeight = getEdgesWeight(squidFiles);
+    design.dsmJson = serializeDsm(graph, squidFiles, feedbackEdges);
+    return design;
+  }
+
+  private static PackageDesign getDesign(Future<PackageDesign> design) {
+    try {
+      return design.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
     }
   }
 
+  private void savePackageDesign(Resource sonarPackage, PackageDesign design) {
+    savePositiveMeasure(sonarPackage, CoreMetrics.FILE_CYCLES, design.cycles);
+    savePositiveMeasure(sonarPackage, CoreMetrics.FILE_FEEDBACK_EDGES, design.feedbackEdges);
+    savePositiveMeasure(sonarPackage, CoreMetrics.FILE_TANGLES, design.tangles);
+    savePositiveMeasure(sonarPackage, CoreMetrics.FILE_EDGES_WEIGHT, design.edgesWeight);
+    context.saveMeasure(sonarPackage, new Measure(CoreMetrics.DEPENDENCY_MATRIX, design.dsmJson));
+  }
+
   private Collection<Resource> getResourcesForDirectory(Resource sonarPackage) {
     List<Resource> result = Lists.newArrayList();
     for (Resource resource : resourceMapping.files((Directory) sonarPackage)) {
@@ -166,5 +242,12 @@ public class DesignBridge {
     }
   }
 
+  private static class PackageDesign {
+    private int cycles;
+    private int feedbackEdges;
+    private int tangles;
+    private double edgesWeight;
+    private String dsmJson;
+  }
 
 }
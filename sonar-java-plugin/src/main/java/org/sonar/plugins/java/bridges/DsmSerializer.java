@@ -26,12 +26,20 @@ import org.sonar.graph.DsmCell;
 
 public final class DsmSerializer {
 
+  /**
+   * Estimated length of the description of the vertex of a row. Cells of a row are mostly empty, i.e. "{}," each.
+   */
+  private static final int ROW_HEADER_LENGTH = 64;
+  private static final int EMPTY_CELL_LENGTH = 3;
+
   private Dsm dsm;
   private StringBuilder json;
 
   private DsmSerializer(Dsm<Resource> dsm) {
     this.dsm = dsm;
-    this.json = new StringBuilder();
+    // the matrix is dense, so its length can be estimated upfront instead of growing the buffer until it fits
+    long dimension = dsm.getDimension();
+    this.json = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8L, 2 + dimension * (ROW_HEADER_LENGTH + dimension * EMPTY_CELL_LENGTH)));
   }
 
   private String serialize() {
@@ -75,14 +83,15 @@ public final class DsmSerializer {
 
   private void serializeCell(int y, int x) {
     DsmCell cell = dsm.getCell(x, y);
-    json.append('{');
     if (cell.getEdge() != null && cell.getWeight() > 0) {
-      json.append("\"i\":");
+      json.append("{\"i\":");
       json.append(((Dependency) cell.getEdge()).getId());
       json.append(",\"w\":");
       json.append(cell.getWeight());
+      json.append('}');
+    } else {
+      json.append("{}");
     }
-    json.append('}');
   }
 
   public static String serialize(Dsm<Resource> dsm) {
@@ -19,8 +19,11 @@
  */
 package org.sonar.plugins.java;
 
+import com.google.common.base.Charsets;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.rule.CheckFactory;
@@ -29,14 +32,22 @@ import org.sonar.api.config.Settings;
 import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.Project;
 import org.sonar.java.DefaultJavaResourceLocator;
+import org.sonar.java.IncrementalCache;
 import org.sonar.java.JavaClasspath;
+import org.sonar.java.JavaConfiguration;
 import org.sonar.java.SonarComponents;
 
+import java.io.File;
+import java.util.Collections;
+
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
 public class JavaSquidSensorTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private final DefaultFileSystem fileSystem = new DefaultFileSystem();
   private JavaSquidSensor sensor;
 
@@ -57,6 +68,18 @@ public class JavaSquidSensorTest {
     assertThat(sensor.shouldExecuteOnProject(project)).isTrue();
   }
 
+  @Test
+  public void new_version_of_analyzer_should_discard_incremental_cache() throws Exception {
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    File file = new File(temp.newFolder(), "cache");
+    IncrementalCache cache = new IncrementalCache(file, sensor.fingerprint(conf, "1"), Collections.<Class<?>>emptyList());
+    cache.put("file", new IncrementalCache.FileResults("hash"));
+    cache.save();
+
+    assertThat(new IncrementalCache(file, sensor.fingerprint(conf, "1"), Collections.<Class<?>>emptyList()).get("file", "hash")).isNotNull();
+    assertThat(new IncrementalCache(file, sensor.fingerprint(conf, "2"), Collections.<Class<?>>emptyList()).get("file", "hash")).isNull();
+  }
+
   @Test
   public void test_toString() {
     assertThat(sensor.toString()).isEqualTo("JavaSquidSensor");
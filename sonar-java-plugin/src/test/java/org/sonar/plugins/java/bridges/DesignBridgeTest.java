@@ -19,24 +19,41 @@
  */
 package org.sonar.plugins.java.bridges;
 
+import com.google.common.collect.Lists;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.component.ResourcePerspectives;
 import org.sonar.api.design.Dependency;
+import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.File;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.graph.DirectedGraph;
 import org.sonar.java.bytecode.visitor.ResourceMapping;
 
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class DesignBridgeTest {
 
+  private static final File A = File.create("src/org/a/A.java", "org/a/A.java", null, false);
+  private static final File B = File.create("src/org/a/B.java", "org/a/B.java", null, false);
+  private static final File C = File.create("src/org/b/C.java", "org/b/C.java", null, false);
+  private static final File D = File.create("src/org/b/D.java", "org/b/D.java", null, false);
 
   @Test
   public void metrics_are_saved() throws Exception {
@@ -49,4 +66,72 @@ public class DesignBridgeTest {
     verify(context, times(4)).saveMeasure(any(Resource.class), any(Metric.class), anyDouble());
 
   }
+
+  @Test
+  public void package_design_does_not_depend_on_number_of_threads() {
+    List<String> measures = savePackagesDesign(1);
+    assertThat(measures).hasSize(10);
+    assertThat(savePackagesDesign(3)).isEqualTo(measures);
+  }
+
+  @Test
+  public void single_thread_saves_each_package_before_analyzing_next_one() {
+    SensorContext context = saveDesign(1);
+    InOrder inOrder = inOrder(context);
+    inOrder.verify(context).getResource(A);
+    inOrder.verify(context).saveMeasure(eq(A.getParent()), any(Measure.class));
+    inOrder.verify(context).getResource(C);
+    inOrder.verify(context).saveMeasure(eq(C.getParent()), any(Measure.class));
+  }
+
+  private static List<String> savePackagesDesign(int threads) {
+    SensorContext context = saveDesign(threads);
+    ArgumentCaptor<Resource> resources = ArgumentCaptor.forClass(Resource.class);
+    ArgumentCaptor<Metric> metrics = ArgumentCaptor.forClass(Metric.class);
+    ArgumentCaptor<Double> values = ArgumentCaptor.forClass(Double.class);
+    verify(context, times(12)).saveMeasure(resources.capture(), metrics.capture(), values.capture());
+    List<String> result = Lists.newArrayList();
+    for (int i = 4; i < resources.getAllValues().size(); i++) {
+      result.add(resources.getAllValues().get(i).getKey() + " " + metrics.getAllValues().get(i).getKey() + "=" + values.getAllValues().get(i));
+    }
+    ArgumentCaptor<Measure> matrices = ArgumentCaptor.forClass(Measure.class);
+    verify(context, times(3)).saveMeasure(any(Resource.class), matrices.capture());
+    for (Measure matrix : matrices.getAllValues().subList(1, 3)) {
+      result.add(matrix.getData());
+    }
+    return result;
+  }
+
+  private static SensorContext saveDesign(int threads) {
+    SensorContext context = mock(SensorContext.class);
+    when(context.getResource(any(Resource.class))).thenAnswer(new Answer<Resource>() {
+      @Override
+      public Resource answer(InvocationOnMock invocation) {
+        return (Resource) invocation.getArguments()[0];
+      }
+    });
+    ResourceMapping resourceMapping = new ResourceMapping();
+    DirectedGraph<Resource, Dependency> graph = new DirectedGraph<Resource, Dependency>();
+    for (File file : new File[] {A, B, C, D}) {
+      resourceMapping.addResource(file, file.getKey());
+    }
+    // weights tell apart the feedback edge of the cycle, which would otherwise depend on the order of hashed sets
+    addDependency(graph, A, B, 2);
+    addDependency(graph, B, A, 1);
+    addDependency(graph, C, D, 1);
+    addDependency(graph, A, C, 1);
+    addDependency(graph, A.getParent(), C.getParent(), 1);
+
+    DesignBridge bridge = new DesignBridge(context, graph, resourceMapping, mock(ResourcePerspectives.class));
+    bridge.setThreads(threads);
+    bridge.saveDesign(mock(Project.class));
+    return context;
+  }
+
+  private static void addDependency(DirectedGraph<Resource, Dependency> graph, Resource from, Resource to, int weight) {
+    Dependency dependency = new Dependency(from, to);
+    dependency.setWeight(weight);
+    graph.addEdge(dependency);
+  }
+
 }
@@ -0,0 +1,61 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.bridges;
+
+import org.junit.Test;
+import org.sonar.api.design.Dependency;
+import org.sonar.api.resources.File;
+import org.sonar.api.resources.Resource;
+import org.sonar.graph.DirectedGraph;
+import org.sonar.graph.Dsm;
+import org.sonar.graph.Edge;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DsmSerializerTest {
+
+  @Test
+  public void serialize() {
+    DirectedGraph<Resource, Dependency> graph = new DirectedGraph<Resource, Dependency>();
+    File a = newFile(1, "A.java");
+    File b = newFile(2, "B.java");
+    File c = newFile(3, "C.java");
+    Dependency dependency = new Dependency(a, b);
+    dependency.setId(10L);
+    dependency.setWeight(3);
+    graph.addEdge(dependency);
+    graph.addVertex(c);
+
+    Dsm<Resource> dsm = new Dsm<Resource>(graph, Arrays.<Resource>asList(a, b, c), Collections.<Edge>emptySet());
+    assertThat(DsmSerializer.serialize(dsm)).isEqualTo("[{\"i\":1,\"n\":\"A.java\",\"q\":\"FIL\",\"v\":[{},{},{}]},"
+      + "{\"i\":2,\"n\":\"B.java\",\"q\":\"FIL\",\"v\":[{\"i\":10,\"w\":3},{},{}]},"
+      + "{\"i\":3,\"n\":\"C.java\",\"q\":\"FIL\",\"v\":[{},{},{}]}]");
+  }
+
+  private static File newFile(int id, String name) {
+    File file = File.create("src/org/" + name, "org/" + name, null, false);
+    file.setId(id);
+    return file;
+  }
+
+}